@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1;
+
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v4.app.FrameMetricsAggregator;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import com.packheng.popularmoviesstage1.images.GridPosterLoader;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Flings the grid of {@link MainActivity} with the poster loads paused while a fling settles,
+ * then without, and logs the share of janky frames of each run, those over 16 ms. Frame durations
+ * are read with {@link FrameMetricsAggregator}, so the test only runs on API 24 and up. Needs
+ * movies in the grid, cached or downloaded.
+ * <p>
+ * Compare the runs in logcat: adb logcat -s GridFlingJankTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class GridFlingJankTest {
+    private static final String LOG_TAG = GridFlingJankTest.class.getSimpleName();
+
+    private static final int FRAME_BUDGET_MILLIS = 16;
+    private static final int FLING_COUNT = 6;
+    private static final long MOVIES_TIMEOUT_MILLIS = 10000;
+    private static final long SCROLL_TIMEOUT_MILLIS = 5000;
+    // Frame metrics are reported asynchronously, a little after the frames.
+    private static final long METRICS_DELAY_MILLIS = 500;
+    private static final long POLL_MILLIS = 50;
+
+    @Rule
+    public ActivityTestRule<MainActivity> activityRule =
+            new ActivityTestRule<>(MainActivity.class);
+
+    private Instrumentation instrumentation;
+    private MainActivity activity;
+    private RecyclerView recyclerView;
+
+    @Before
+    public void setUp() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        activity = activityRule.getActivity();
+        recyclerView = activity.findViewById(R.id.movies_rv);
+        assumeTrue("No movies to fling", waitForMovies());
+    }
+
+    @Test
+    public void flingGrid_logsJankWithAndWithoutPausedLoads() {
+        float pausedJank = measureJank(true);
+        float unpausedJank = measureJank(false);
+
+        Log.i(LOG_TAG, String.format(Locale.US, "Janky frames: %.1f%% with the loads paused "
+                + "during flings, %.1f%% without", pausedJank, unpausedJank));
+    }
+
+    /**
+     * Flings the grid from the top, down and up, with empty memory caches.
+     *
+     * @param pauseOnFling whether the poster loads are paused while a fling settles.
+     * @return the percentage of frames over the frame budget.
+     */
+    private float measureJank(final boolean pauseOnFling) {
+        final GridPosterLoader gridPosterLoader = activity.getGridPosterLoader();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                gridPosterLoader.setPauseOnFling(pauseOnFling);
+                ImagePipeline.getInstance(activity).onLowMemory();
+                recyclerView.scrollToPosition(0);
+            }
+        });
+        instrumentation.waitForIdleSync();
+
+        FrameMetricsAggregator aggregator =
+                new FrameMetricsAggregator(FrameMetricsAggregator.TOTAL_DURATION);
+        aggregator.add(activity);
+        for (int i = 0; i < FLING_COUNT; i++) {
+            // Down then up, so that the grid mostly stays within the pages already loaded.
+            final int velocity = (i % 2 == 0 ? 1 : -1) * recyclerView.getMaxFlingVelocity();
+            instrumentation.runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    recyclerView.fling(0, velocity);
+                }
+            });
+            waitForScrollIdle();
+        }
+        SystemClock.sleep(METRICS_DELAY_MILLIS);
+        SparseIntArray[] metrics = aggregator.remove(activity);
+
+        assertNotNull(metrics);
+        SparseIntArray durations = metrics[FrameMetricsAggregator.TOTAL_INDEX];
+        assertNotNull(durations);
+        int frameCount = 0;
+        int jankyFrameCount = 0;
+        for (int i = 0; i < durations.size(); i++) {
+            frameCount += durations.valueAt(i);
+            if (durations.keyAt(i) > FRAME_BUDGET_MILLIS) {
+                jankyFrameCount += durations.valueAt(i);
+            }
+        }
+        assertTrue(frameCount > 0);
+        Log.i(LOG_TAG, String.format(Locale.US, "Paused loads: %b, frames: %d, janky: %d",
+                pauseOnFling, frameCount, jankyFrameCount));
+        return 100f * jankyFrameCount / frameCount;
+    }
+
+    private boolean waitForMovies() {
+        long deadline = SystemClock.uptimeMillis() + MOVIES_TIMEOUT_MILLIS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            if (readOnMainThread(true) > 0) {
+                return true;
+            }
+            SystemClock.sleep(POLL_MILLIS);
+        }
+        return false;
+    }
+
+    private void waitForScrollIdle() {
+        long deadline = SystemClock.uptimeMillis() + SCROLL_TIMEOUT_MILLIS;
+        while (readOnMainThread(false) != RecyclerView.SCROLL_STATE_IDLE) {
+            assertTrue("The fling didn't settle", SystemClock.uptimeMillis() < deadline);
+            SystemClock.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * @param itemCount true to read the number of movies of the grid, false its scroll state.
+     */
+    private int readOnMainThread(final boolean itemCount) {
+        final int[] value = new int[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                value[0] = itemCount ? recyclerView.getAdapter().getItemCount()
+                        : recyclerView.getScrollState();
+            }
+        });
+        return value[0];
+    }
+}
@@ -17,36 +17,88 @@
 package com.packheng.popularmoviesstage1;
 
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
 import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
 import com.packheng.popularmoviesstage1.TMDB.MoviesAdapter;
+import com.packheng.popularmoviesstage1.data.FavoritesStore;
+import com.packheng.popularmoviesstage1.data.GenreStore;
+import com.packheng.popularmoviesstage1.data.GenreTable;
+import com.packheng.popularmoviesstage1.data.MovieDetailsStore;
+import com.packheng.popularmoviesstage1.data.MoviesRepository;
+import com.packheng.popularmoviesstage1.images.CellSizeTransformation;
+import com.packheng.popularmoviesstage1.images.DominantColor;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+import com.packheng.popularmoviesstage1.images.PosterBitmapPool;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.utils.DeepLinkUtils;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.NetworkPolicy;
 import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 
-import java.util.Date;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
-import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.formatDateToString;
-import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.stringToDate;
-
 /**
- * Shows the details of a movie.
+ * Shows the details of a movie, given its TMDB id in the intent extras or in a link to the movie.
+ * <p>
+ * The poster moves in from the grid with a shared element transition. It first shows the bitmap
+ * of the grid, found in the memory cache, then the poster sized for this screen once loaded.
+ * The runtime, genres, trailers and reviews are shown once the details of the movie are loaded,
+ * usually already prefetched as the poster was pressed in the grid. The movie can be added to the
+ * favorites, whose posters are pinned on disk.
  */
 public class DetailActivity extends AppCompatActivity {
 
+    private Picasso picasso;
+    private PosterBitmapPool bitmapPool;
+    // Bitmap of the grid shown until the poster of this screen is loaded, held from the pool.
+    private Bitmap gridPosterBitmap;
+    private boolean isTransitionPostponed;
+    // Activity.isDestroyed() needs API 17.
+    private boolean isDestroyed;
+    private FavoritesStore favoritesStore;
+    // The movie shown once loaded, whether it is a favorite and the url of its poster on TMDB.
+    private Movie movie;
+    private boolean isFavorite;
+    private String tmdbPosterUrl = "";
+
     @BindView(R.id.detail_activity_poster_iv) ImageView posterImageView;
     @BindView(R.id.detail_activity_poster_empty_tv) TextView emptyPosterTextView;
     @BindView(R.id.detail_activity_title_tv) TextView titleTextView;
     @BindView(R.id.detail_activity_user_rating_tv) TextView userRatingTextView;
     @BindView(R.id.detail_activity_release_date_tv) TextView releaseDatetextView;
     @BindView(R.id.detail_activity_plot_synopsis_tv) TextView overviewTextView;
+    @BindView(R.id.detail_activity_runtime_label_tv) TextView runtimeLabelTextView;
+    @BindView(R.id.detail_activity_runtime_tv) TextView runtimeTextView;
+    @BindView(R.id.detail_activity_genres_label_tv) TextView genresLabelTextView;
+    @BindView(R.id.detail_activity_genres_tv) TextView genresTextView;
+    @BindView(R.id.detail_activity_trailers_label_tv) TextView trailersLabelTextView;
+    @BindView(R.id.detail_activity_trailers_ll) LinearLayout trailersLayout;
+    @BindView(R.id.detail_activity_reviews_label_tv) TextView reviewsLabelTextView;
+    @BindView(R.id.detail_activity_reviews_ll) LinearLayout reviewsLayout;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,28 +106,118 @@ public class DetailActivity extends AppCompatActivity {
         setContentView(R.layout.activity_detail);
         ButterKnife.bind(this);
 
-        final int DEFAULT_POSITION = 0;
+        ImagePipeline imagePipeline = ImagePipeline.getInstance(this);
+        picasso = imagePipeline.getPicasso();
+        bitmapPool = imagePipeline.getBitmapPool();
+        favoritesStore = FavoritesStore.getInstance(this);
 
-        Intent intent = getIntent();
-        int position = intent.getIntExtra(MoviesAdapter.MOVIE_POSITION_KEY, DEFAULT_POSITION);
+        // Wait for the poster of the grid before moving it.
+        supportPostponeEnterTransition();
+        isTransitionPostponed = true;
+
+        // The movie is in memory when opened from the grid, unless the process was killed while
+        // this screen was shown, and may only be on disk when opened from a link.
+        int movieId = getMovieId(getIntent());
+        if (movieId == DeepLinkUtils.INVALID_MOVIE_ID) {
+            finishWithMovieNotFound();
+            return;
+        }
+        final MoviesRepository moviesRepository = MoviesRepository.getInstance(this);
+        moviesRepository.loadMovie(movieId,
+                new MoviesRepository.OnMovieLoadedListener() {
+                    @Override
+                    public void onMovieLoaded(@Nullable Movie movie) {
+                        if (movie == null) {
+                            finishWithMovieNotFound();
+                            return;
+                        }
+                        showMovie(movie);
+                        loadFavorite(movie);
+                        moviesRepository.loadMovieDetails(movie.getId(),
+                                new MovieDetailsStore.OnDetailsLoadedListener() {
+                                    @Override
+                                    public void onDetailsLoaded(@Nullable MovieDetails details) {
+                                        if (details != null && !isDestroyed) {
+                                            showDetails(details);
+                                        }
+                                    }
+                                });
+                    }
+                });
+    }
 
-        Movie movie = MainActivity.movies.get(position);
+    private void finishWithMovieNotFound() {
+        Toast.makeText(this, R.string.movie_not_found, Toast.LENGTH_SHORT).show();
+        finish();
+    }
 
-        String posterUrl = movie.getPosterUrl();
-        if (!posterUrl.isEmpty()) {
-            emptyPosterTextView.setVisibility(View.GONE);
-            Picasso.with(this).load(movie.getPosterUrl()).into(posterImageView);
-        } else {
-            emptyPosterTextView.setVisibility(View.VISIBLE);
+    private void loadFavorite(final Movie loadedMovie) {
+        favoritesStore.load(new FavoritesStore.OnFavoritesLoadedListener() {
+            @Override
+            public void onFavoritesLoaded(List<Movie> favorites) {
+                if (isDestroyed) {
+                    return;
+                }
+                movie = loadedMovie;
+                isFavorite = favoritesStore.isFavorite(loadedMovie.getId());
+                invalidateOptionsMenu();
+            }
+        });
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.detail_menu, menu);
+        MenuItem favoriteItem = menu.findItem(R.id.menu_item_favorite);
+        // Hidden until the favorites are loaded.
+        favoriteItem.setVisible(movie != null);
+        favoriteItem.setIcon(isFavorite ? android.R.drawable.btn_star_big_on
+                : android.R.drawable.btn_star_big_off);
+        favoriteItem.setTitle(isFavorite ? R.string.menu_item_remove_favorite
+                : R.string.menu_item_add_favorite);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.menu_item_favorite && movie != null) {
+            isFavorite = !isFavorite;
+            if (isFavorite) {
+                favoritesStore.add(movie, tmdbPosterUrl);
+            } else {
+                favoritesStore.remove(movie.getId());
+            }
+            invalidateOptionsMenu();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        isDestroyed = true;
+
+        picasso.cancelRequest(posterImageView);
+        releaseGridPoster();
+    }
+
+    private static int getMovieId(Intent intent) {
+        Uri link = intent.getData();
+        if (link != null) {
+            return DeepLinkUtils.parseMovieId(link.getHost(), link.getPathSegments());
         }
+        return intent.getIntExtra(MoviesAdapter.MOVIE_ID_KEY, DeepLinkUtils.INVALID_MOVIE_ID);
+    }
+
+    private void showMovie(Movie movie) {
+        showPoster(movie);
 
         titleTextView.setText(movie.getTitle());
-        userRatingTextView.setText(String.format(Locale.getDefault(), "%1.1f", movie.getUserRating()));
+        userRatingTextView.setText(movie.getUserRatingText());
 
-        String releaseDate = movie.getReleaseDate();
+        String releaseDate = movie.getReleaseDateText();
         if (!releaseDate.isEmpty()) {
-            Date date = stringToDate(releaseDate);
-            releaseDate = formatDateToString(date);
             releaseDatetextView.setText(releaseDate);
         } else {
             releaseDatetextView.setText(getString(R.string.unknown));
@@ -88,5 +230,181 @@ public class DetailActivity extends AppCompatActivity {
             overviewTextView.setText(getString(R.string.no_plot_synopsis_found));
         }
 
+        // Show the genres at once when their names are known, the details replace them.
+        GenreTable genres = GenreStore.getInstance(this).getGenres();
+        if (genres != null) {
+            showGenres(genres.namesOf(movie.getGenreIds()));
+        }
+    }
+
+    private void showGenres(List<String> genreNames) {
+        if (!genreNames.isEmpty()) {
+            genresTextView.setText(TextUtils.join(", ", genreNames));
+            genresLabelTextView.setVisibility(View.VISIBLE);
+            genresTextView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    private void showDetails(MovieDetails details) {
+        int runtimeMinutes = details.getRuntimeMinutes();
+        if (runtimeMinutes != MovieDetails.UNKNOWN_RUNTIME) {
+            runtimeTextView.setText(getString(R.string.runtime_minutes, runtimeMinutes));
+            runtimeLabelTextView.setVisibility(View.VISIBLE);
+            runtimeTextView.setVisibility(View.VISIBLE);
+        }
+
+        List<String> genreNames = new ArrayList<>();
+        for (MovieDetails.Genre genre : details.getGenres()) {
+            genreNames.add(genre.getName());
+        }
+        showGenres(genreNames);
+
+        LayoutInflater inflater = LayoutInflater.from(this);
+        trailersLayout.removeAllViews();
+        for (MovieDetails.Video video : details.getVideos()) {
+            final String watchUrl = video.getWatchUrl();
+            if (watchUrl.isEmpty()) {
+                continue;
+            }
+            TextView trailerTextView = (TextView) inflater.inflate(R.layout.trailer_item,
+                    trailersLayout, false);
+            trailerTextView.setText(!TextUtils.isEmpty(video.getName()) ? video.getName()
+                    : getString(R.string.play_trailer));
+            trailerTextView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(watchUrl));
+                    if (intent.resolveActivity(getPackageManager()) != null) {
+                        startActivity(intent);
+                    }
+                }
+            });
+            trailersLayout.addView(trailerTextView);
+        }
+        trailersLabelTextView.setVisibility(
+                trailersLayout.getChildCount() > 0 ? View.VISIBLE : View.GONE);
+
+        reviewsLayout.removeAllViews();
+        for (MovieDetails.Review review : details.getReviews()) {
+            View reviewView = inflater.inflate(R.layout.review_item, reviewsLayout, false);
+            ((TextView) reviewView.findViewById(R.id.review_item_author_tv))
+                    .setText(review.getAuthor());
+            ((TextView) reviewView.findViewById(R.id.review_item_content_tv))
+                    .setText(review.getContent());
+            reviewsLayout.addView(reviewView);
+        }
+        reviewsLabelTextView.setVisibility(
+                reviewsLayout.getChildCount() > 0 ? View.VISIBLE : View.GONE);
+    }
+
+    private void showPoster(final Movie movie) {
+        ViewCompat.setTransitionName(posterImageView,
+                MoviesAdapter.getPosterTransitionName(movie.getId()));
+
+        // The poster is bigger in the details than in the grid on some screens.
+        PosterSizeResolver posterSizeResolver = new PosterSizeResolver(
+                (int) getResources().getDimension(R.dimen.detail_movie_poster_width));
+        tmdbPosterUrl = posterSizeResolver.getPosterUrl(movie.getPosterPath());
+        // The poster of a favorite is pinned on disk, so that it shows without any request.
+        String pinnedPosterUrl = favoritesStore.getPinnedPosterUrl(movie.getId());
+        final String posterUrl = !pinnedPosterUrl.isEmpty() ? pinnedPosterUrl : tmdbPosterUrl;
+        if (posterUrl.isEmpty()) {
+            emptyPosterTextView.setVisibility(View.VISIBLE);
+            startPostponedTransition();
+            return;
+        }
+        emptyPosterTextView.setVisibility(View.GONE);
+
+        final String gridPosterUrl = getIntent().getStringExtra(MoviesAdapter.POSTER_URL_KEY);
+        if (gridPosterUrl == null || gridPosterUrl.isEmpty()) {
+            loadPoster(posterUrl, movie.getPosterColor());
+            startPostponedTransition();
+            return;
+        }
+
+        // Same request as the grid, so that its bitmap is found in the memory cache and shown
+        // straight away. Never wait for the network: the poster of this screen would be faster.
+        picasso.load(gridPosterUrl)
+                .transform(new CellSizeTransformation(
+                        getIntent().getIntExtra(MoviesAdapter.POSTER_CELL_WIDTH_KEY, 0),
+                        getIntent().getIntExtra(MoviesAdapter.POSTER_CELL_HEIGHT_KEY, 0)))
+                .networkPolicy(NetworkPolicy.OFFLINE)
+                .noFade()
+                .into(posterImageView, new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        holdGridPoster();
+                        startPostponedTransition();
+                        if (!posterUrl.equals(gridPosterUrl)) {
+                            loadPoster(posterUrl, DominantColor.NO_COLOR);
+                        }
+                    }
+
+                    @Override
+                    public void onError() {
+                        startPostponedTransition();
+                        loadPoster(posterUrl, movie.getPosterColor());
+                    }
+                });
+    }
+
+    /**
+     * Loads the poster sized for this screen, keeping the poster shown until it is loaded.
+     *
+     * @param posterUrl the url of the poster.
+     * @param placeholderColor the color shown meanwhile, or {@link DominantColor#NO_COLOR} to
+     *                         keep the poster shown.
+     */
+    private void loadPoster(String posterUrl, int placeholderColor) {
+        // Decode to the size of the view rather than the size of the image. Not faded, so that
+        // the grid bitmap isn't drawn anymore once released.
+        RequestCreator request = picasso.load(posterUrl)
+                .resize((int) getResources().getDimension(R.dimen.detail_movie_poster_width),
+                        (int) getResources().getDimension(R.dimen.detail_movie_poster_height))
+                .centerCrop()
+                .onlyScaleDown()
+                .noFade();
+        if (placeholderColor != DominantColor.NO_COLOR) {
+            request.placeholder(new ColorDrawable(placeholderColor));
+        } else {
+            request.noPlaceholder();
+        }
+        request.into(posterImageView, new Callback() {
+            @Override
+            public void onSuccess() {
+                releaseGridPoster();
+            }
+
+            @Override
+            public void onError() {
+                // Keep the poster of the grid.
+            }
+        });
+    }
+
+    private void holdGridPoster() {
+        Drawable drawable = posterImageView.getDrawable();
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null) {
+                releaseGridPoster();
+                bitmapPool.acquire(bitmap);
+                gridPosterBitmap = bitmap;
+            }
+        }
+    }
+
+    private void releaseGridPoster() {
+        if (gridPosterBitmap != null) {
+            bitmapPool.release(gridPosterBitmap);
+            gridPosterBitmap = null;
+        }
+    }
+
+    private void startPostponedTransition() {
+        if (isTransitionPostponed) {
+            isTransitionPostponed = false;
+            supportStartPostponedEnterTransition();
+        }
     }
 }
@@ -16,17 +16,21 @@
 
 package com.packheng.popularmoviesstage1;
 
+import android.arch.lifecycle.Observer;
+import android.arch.lifecycle.ViewModelProviders;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.DisplayMetrics;
-import android.view.Display;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -35,37 +39,46 @@ import android.widget.TextView;
 import com.packheng.popularmoviesstage1.TMDB.Movie;
 import com.packheng.popularmoviesstage1.TMDB.MoviesAdapter;
 import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
-import com.packheng.popularmoviesstage1.TMDB.TMDBResponse;
-import com.packheng.popularmoviesstage1.TMDB.TMDBResult;
-
-import java.util.ArrayList;
+import com.packheng.popularmoviesstage1.catalog.MovieQuery;
+import com.packheng.popularmoviesstage1.data.GenreStore;
+import com.packheng.popularmoviesstage1.data.MoviesRepository;
+import com.packheng.popularmoviesstage1.images.GridPosterLoader;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+import com.packheng.popularmoviesstage1.images.PosterPrefetcher;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.paging.PagingScrollListener;
+import com.packheng.popularmoviesstage1.sync.MoviesSyncScheduler;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
-import static com.packheng.popularmoviesstage1.utils.NetworkUtils.isNetworkConnected;
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateBestSpanCount;
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateCellWidth;
 
 public class MainActivity extends AppCompatActivity
         implements SharedPreferences.OnSharedPreferenceChangeListener  {
+    private static final String LOG_TAG = MainActivity.class.getSimpleName();
 
-    private static final String TMDB_BASE_URL = "https://api.themoviedb.org/3/";
+    // Key of the number of pages shown, saved in case the process is killed.
+    private static final String LOADED_PAGE_COUNT_KEY = "loaded_page_count";
 
-    static ArrayList<Movie> movies;
     private String sortBy;
     private MoviesAdapter moviesAdapter;
+    private PagingScrollListener pagingScrollListener;
+    private GridPosterLoader gridPosterLoader;
+    private PosterPrefetcher posterPrefetcher;
+    private MoviesViewModel moviesViewModel;
 
     @BindView(R.id.movies_rv) RecyclerView moviesRecyclerView;
     @BindView(R.id.empty_tv) TextView emptyTextView;
     @BindView(R.id.swipe_refrsh) SwipeRefreshLayout swipeRefreshLayout;
 
-    private TMDBEndpointInterface apiService;
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -73,35 +86,82 @@ public class MainActivity extends AppCompatActivity
         ButterKnife.bind(this);
 
         // Set number of columns in the RecyclerView.
-        int numberOfColumns = calculateBestSpanCount((int) getResources()
-                .getDimension(R.dimen.main_movie_poster_width));
-
-        movies = new ArrayList<>();
+        DisplayMetrics displayMetrics = new DisplayMetrics();
+        getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
+        int posterWidth = (int) getResources().getDimension(R.dimen.main_movie_poster_width);
+        int numberOfColumns = calculateBestSpanCount(displayMetrics, posterWidth);
+
+        // The movies and the paging state survive configuration changes in the ViewModel.
+        moviesViewModel = ViewModelProviders.of(this).get(MoviesViewModel.class);
+
+        // Request posters sized for the width at which they are displayed in the grid, and
+        // decode them at the size of the cells.
+        int cellWidth = calculateCellWidth(displayMetrics, posterWidth, numberOfColumns);
+        int posterHeight = (int) getResources().getDimension(R.dimen.main_movie_poster_height);
+        PosterSizeResolver posterSizeResolver = new PosterSizeResolver(cellWidth,
+                cellWidth * posterHeight / posterWidth);
+        moviesViewModel.setPosterSizeResolver(posterSizeResolver);
 
         moviesRecyclerView.setVisibility(View.VISIBLE);
         emptyTextView.setVisibility(View.GONE);
 
         // Set up the RecyclerView.
         moviesRecyclerView.setHasFixedSize(true);
-        moviesAdapter = new MoviesAdapter(this, movies);
+        // Reuse the bitmaps of the posters, and hold their loads while a fling settles.
+        ImagePipeline imagePipeline = ImagePipeline.getInstance(this);
+        gridPosterLoader = new GridPosterLoader(imagePipeline.getPicasso(),
+                imagePipeline.getBitmapPool(), posterSizeResolver,
+                getResources().getBoolean(R.bool.poster_decode_rgb_565));
+        moviesAdapter = new MoviesAdapter(this, gridPosterLoader);
+        // Start loading the details of a movie as soon as its poster is pressed.
+        final MoviesRepository moviesRepository = MoviesRepository.getInstance(this);
+        moviesAdapter.setOnPosterPressedListener(new MoviesAdapter.OnPosterPressedListener() {
+            @Override
+            public void onPosterPressed(int movieId) {
+                moviesRepository.prefetchMovieDetails(movieId);
+            }
+
+            @Override
+            public void onPosterPressCancelled(int movieId) {
+                moviesRepository.cancelMovieDetailsPrefetch(movieId);
+            }
+        });
         moviesRecyclerView.setAdapter(moviesAdapter);
-        moviesRecyclerView.setLayoutManager(new GridLayoutManager(this, numberOfColumns));
+        // The genre names are needed by the genre filter and the details screen.
+        GenreStore.getInstance(this).prefetch();
+        GridLayoutManager layoutManager = new GridLayoutManager(this, numberOfColumns);
+        moviesRecyclerView.setLayoutManager(layoutManager);
+
+        // Load the next page a few rows before the user reaches the end of the grid.
+        pagingScrollListener = new PagingScrollListener(layoutManager,
+                moviesViewModel.getPageTracker(),
+                getResources().getInteger(R.integer.paging_prefetch_rows),
+                new PagingScrollListener.OnLoadMoreListener() {
+                    @Override
+                    public void onLoadMore() {
+                        moviesViewModel.loadNextPage();
+                    }
+                });
+        moviesRecyclerView.addOnScrollListener(pagingScrollListener);
+
+        // Load the posters of the next rows in the scroll direction before they are bound.
+        posterPrefetcher = new PosterPrefetcher(layoutManager, gridPosterLoader, moviesAdapter,
+                posterHeight,
+                getResources().getInteger(R.integer.poster_prefetch_rows),
+                getResources().getInteger(R.integer.poster_prefetch_max_rows));
+        moviesRecyclerView.addOnScrollListener(posterPrefetcher);
+        moviesRecyclerView.addOnScrollListener(gridPosterLoader);
 
         swipeRefreshLayout.setColorSchemeResources(R.color.colorPrimary, R.color.green, R.color.yellow);
         // Set up a setOnRefreshListener to  when user performs a swipe-to-refresh gesture.
         swipeRefreshLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
             @Override
             public void onRefresh() {
-                loadMoviesData();
+                loadMoviesData(true);
             }
         });
 
-        // Create the Retrofit instance and constructs a service leveraging TMBDEndpointInterface.
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(TMDB_BASE_URL)
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-        apiService = retrofit.create(TMDBEndpointInterface.class);
+        observeViewModel();
 
         // Get the sort by type from SharedPreferences and register the listener
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
@@ -109,83 +169,156 @@ public class MainActivity extends AppCompatActivity
                 getString(R.string.pref_sort_by_most_popular));
         sp.registerOnSharedPreferenceChangeListener(this);
 
-        loadMoviesData();
+        setActionBarTitle();
+        // On a cold start, show the movies of the last session before anything is loaded.
+        moviesViewModel.showSnapshot(getSnapshotKey());
+        // Nothing is loaded if the ViewModel already holds the list, e.g. after a rotation.
+        if (isFavoritesSelected()) {
+            moviesViewModel.startFavorites();
+        } else if (isLocalSortSelected()) {
+            moviesViewModel.start(getCatalogQuery());
+        } else {
+            int restoredPageCount = savedInstanceState != null
+                    ? savedInstanceState.getInt(LOADED_PAGE_COUNT_KEY) : 0;
+            moviesViewModel.start(getEndpoint(), restoredPageCount);
+        }
+
+        // Keep the lists fresh in the background, for the next launches.
+        MoviesSyncScheduler.schedule(this);
     }
 
-    /**
-     * Loads movies data.
-     */
-    private void loadMoviesData() {
-        final String API_KEY_VALUE = BuildConfig.ApiKey;
-        final String BASE_URL = "https://image.tmdb.org/t/p";
-        final String IMAGE_SIZE = "/w185";
-        final String EMPTY_STRING = "";
-
-        swipeRefreshLayout.setRefreshing(true);
-
-        if (isNetworkConnected(this)) {
-            moviesRecyclerView.setVisibility(View.GONE);
-            emptyTextView.setVisibility(View.GONE);
-
-            // Accessing the API
-            Call<TMDBResponse> call;
-            if (sortBy.equals(getString(R.string.pref_sort_by_top_rated))) {
-                setActionBarTitle(getString(R.string.pref_sort_by_top_rated));
-                call = apiService.topRatedMovies(API_KEY_VALUE);
-            } else {
-                setActionBarTitle(getString(R.string.pref_sort_by_most_popular));
-                call = apiService.popularMovies(API_KEY_VALUE);
+    private void observeViewModel() {
+        moviesViewModel.getMovies().observe(this, new Observer<List<Movie>>() {
+            @Override
+            public void onChanged(@Nullable List<Movie> movies) {
+                moviesAdapter.submitList(movies);
+                posterPrefetcher.reset();
+                // The appended page may still not fill the look-ahead window.
+                pagingScrollListener.checkLoadMore();
             }
+        });
 
-            call.enqueue(new Callback<TMDBResponse>() {
+        moviesViewModel.getRefreshing().observe(this, new Observer<Boolean>() {
+            @Override
+            public void onChanged(@Nullable Boolean refreshing) {
+                swipeRefreshLayout.setRefreshing(refreshing != null && refreshing);
+            }
+        });
 
-                @Override
-                public void onResponse(Call<TMDBResponse> call, Response<TMDBResponse> response) {
-                    swipeRefreshLayout.setRefreshing(false);
+        moviesViewModel.getEmptyMessage().observe(this, new Observer<Integer>() {
+            @Override
+            public void onChanged(@Nullable Integer messageResId) {
+                if (messageResId == null || messageResId == MoviesViewModel.NO_EMPTY_MESSAGE) {
                     emptyTextView.setVisibility(View.GONE);
                     moviesRecyclerView.setVisibility(View.VISIBLE);
+                } else if (messageResId == MoviesViewModel.LOADING) {
+                    moviesRecyclerView.setVisibility(View.GONE);
+                    emptyTextView.setVisibility(View.GONE);
+                } else {
+                    showEmptyView(messageResId);
+                }
+            }
+        });
+    }
 
-                    if (response.body() != null) {
-                        List<TMDBResult> results = response.body().getResults();
-                        movies.clear();
-                        for (TMDBResult result: results) {
-                            Movie movie = new Movie();
-                            if (result != null) {
-                                movie.setTitle(result.getOriginalTitle());
-                                if (!result.getPosterPath().isEmpty()) {
-                                    movie.setPosterUrl(BASE_URL + IMAGE_SIZE + result.getPosterPath());
-                                } else {
-                                    movie.setPosterUrl(EMPTY_STRING);
-                                }
-                                movie.setPlotSynopsis(result.getOverview());
-                                movie.setUserRating(result.getVoteAverage());
-                                movie.setReleaseDate(result.getReleaseDate());
-                            }
-                            movies.add(movie);
-                        }
-                        moviesAdapter.notifyDataSetChanged();
-                    } else {
-                        moviesRecyclerView.setVisibility(View.GONE);
-                        emptyTextView.setVisibility(View.VISIBLE);
-                        emptyTextView.setText(R.string.no_movies_data_found);
-                    }
+    /**
+     * Loads the first page of the movies list matching the current sort by type, sorts the
+     * downloaded movies for the local sort by types, or shows the favorites, replacing the movies
+     * currently shown.
+     *
+     * @param forceRefresh true to refresh the cached page from the network even if it is fresh.
+     */
+    private void loadMoviesData(boolean forceRefresh) {
+        setActionBarTitle();
+        if (isFavoritesSelected()) {
+            moviesViewModel.showFavorites();
+        } else if (isLocalSortSelected()) {
+            moviesViewModel.queryCatalog(getCatalogQuery());
+        } else {
+            moviesViewModel.loadMovies(getEndpoint(), forceRefresh);
+        }
+    }
 
-                }
+    private void showEmptyView(int messageResId) {
+        moviesRecyclerView.setVisibility(View.GONE);
+        emptyTextView.setVisibility(View.VISIBLE);
+        emptyTextView.setText(messageResId);
+    }
 
-                @Override
-                public void onFailure(Call<TMDBResponse> call, Throwable t) {
-                    swipeRefreshLayout.setRefreshing(false);
-                    moviesRecyclerView.setVisibility(View.GONE);
-                    emptyTextView.setVisibility(View.VISIBLE);
-                    emptyTextView.setText(R.string.issue_with_fetching_data);
-                }
-            });
+    private boolean isTopRatedSelected() {
+        return sortBy.equals(getString(R.string.pref_sort_by_top_rated));
+    }
+
+    private boolean isFavoritesSelected() {
+        return sortBy.equals(getString(R.string.pref_sort_by_favorites));
+    }
+
+    /**
+     * @return true if the current sort by type sorts the downloaded movies on the device.
+     */
+    private boolean isLocalSortSelected() {
+        return sortBy.equals(getString(R.string.pref_sort_by_newest))
+                || sortBy.equals(getString(R.string.pref_sort_by_most_voted));
+    }
+
+    /**
+     * @return identifies the grid of the current sort by type and, for the downloaded movies, of
+     * the current filters, so that the snapshot of another grid isn't shown.
+     */
+    private String getSnapshotKey() {
+        return isLocalSortSelected() ? getCatalogQuery().getKey() : sortBy;
+    }
+
+    /**
+     * @return the query of the downloaded movies matching the current sort by type and filters.
+     */
+    private MovieQuery getCatalogQuery() {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
+        int minVoteCount;
+        try {
+            minVoteCount = Integer.parseInt(sp.getString(getString(R.string.pref_min_votes_key),
+                    getString(R.string.pref_min_votes_default)));
+        } catch (NumberFormatException e) {
+            minVoteCount = 0;
+        }
+        String language = sp.getString(getString(R.string.pref_language_key),
+                getString(R.string.pref_language_any));
+        Set<String> genres = sp.getStringSet(getString(R.string.pref_genres_key),
+                Collections.<String>emptySet());
+        int[] genreIds = new int[genres.size()];
+        int genreCount = 0;
+        for (String genre : genres) {
+            try {
+                genreIds[genreCount++] = Integer.parseInt(genre);
+            } catch (NumberFormatException e) {
+                genreCount--;
+            }
+        }
+
+        // Sorted, so that the same genres make the same query whatever the order of the set.
+        genreIds = Arrays.copyOf(genreIds, genreCount);
+        Arrays.sort(genreIds);
+
+        MovieQuery.Builder builder = new MovieQuery.Builder()
+                .minVoteCount(minVoteCount)
+                .language(language.equals(getString(R.string.pref_language_any)) ? null : language)
+                .genres(genreIds);
+        if (sortBy.equals(getString(R.string.pref_sort_by_newest))) {
+            builder.sortBy(MovieQuery.SortColumn.RELEASE_DATE, true)
+                    .sortBy(MovieQuery.SortColumn.POPULARITY, true);
         } else {
-            swipeRefreshLayout.setRefreshing(false);
-            moviesRecyclerView.setVisibility(View.GONE);
-            emptyTextView.setVisibility(View.VISIBLE);
-            emptyTextView.setText(R.string.no_internet);
+            builder.sortBy(MovieQuery.SortColumn.VOTE_COUNT, true)
+                    .sortBy(MovieQuery.SortColumn.VOTE_AVERAGE, true);
         }
+        return builder.build();
+    }
+
+    /**
+     * @return the TMDB endpoint of the list matching the current sort by type.
+     */
+    private String getEndpoint() {
+        return isTopRatedSelected() ? TMDBEndpointInterface.TOP_RATED_ENDPOINT
+                : TMDBEndpointInterface.MOST_POPULAR_ENDPOINT;
     }
 
     @Override
@@ -199,8 +332,12 @@ public class MainActivity extends AppCompatActivity
         int id = item.getItemId();
 
         switch (id) {
+            case R.id.menu_item_search:
+                startActivity(new Intent(this, SearchActivity.class));
+                return true;
+
             case R.id.menu_item_refresh:
-                loadMoviesData();
+                loadMoviesData(true);
                 return true;
 
             case R.id.menu_item_settings:
@@ -212,15 +349,35 @@ public class MainActivity extends AppCompatActivity
         }
     }
 
-    // Reloads the movies if the shared preference (sort by) changes
+    // Reloads the movies if the shared preference (sort by) changes, and sorts the downloaded
+    // movies again if their filters change.
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
         if (key.equals(getString(R.string.pref_sort_by_key))) {
             String sortByPref = sharedPreferences.getString(key, sortBy);
             if (!sortBy.equals(sortByPref)) {
                 sortBy = sortByPref;
-                loadMoviesData();
+                loadMoviesData(false);
             }
+        } else if ((key.equals(getString(R.string.pref_min_votes_key))
+                || key.equals(getString(R.string.pref_language_key))
+                || key.equals(getString(R.string.pref_genres_key))) && isLocalSortSelected()) {
+            loadMoviesData(false);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(LOADED_PAGE_COUNT_KEY, moviesViewModel.getLoadedPageCount());
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        moviesViewModel.saveSnapshot(getSnapshotKey());
+        if (BuildConfig.DEBUG) {
+            logImageStats();
         }
     }
 
@@ -228,34 +385,46 @@ public class MainActivity extends AppCompatActivity
     protected void onDestroy() {
         super.onDestroy();
 
+        posterPrefetcher.cancel();
+        gridPosterLoader.cancel();
+
         PreferenceManager.getDefaultSharedPreferences(this)
                 .unregisterOnSharedPreferenceChangeListener(this);
     }
 
     /**
-     * Calculates best number of columns in the grid view depending of the poster width
-     * and the screen width.
-     *
-     * @param posterWidth Width of the poster in dp.
-     * @return number of columns.
+     * @return the loader of the grid posters, e.g. to measure the grid with its loads paused
+     * during flings or not.
      */
-    private int calculateBestSpanCount(int posterWidth) {
-        Display display = getWindowManager().getDefaultDisplay();
-        DisplayMetrics outMetrics = new DisplayMetrics();
-        display.getMetrics(outMetrics);
-        float screenWidth = outMetrics.widthPixels;
-        return Math.round(screenWidth / posterWidth);
+    @VisibleForTesting
+    GridPosterLoader getGridPosterLoader() {
+        return gridPosterLoader;
     }
 
     /**
-     * Sets the title of the action bar.
-     *
-     * @param title of the action bar.
+     * Logs the heap used by the decoded posters and the reuse of their bitmaps. Reading the stats
+     * touches the disk, so they are read in the background.
+     */
+    private void logImageStats() {
+        final ImagePipeline imagePipeline = ImagePipeline.getInstance(this);
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                Log.d(LOG_TAG, imagePipeline.getStats().toString());
+            }
+        });
+    }
+
+    /**
+     * Sets the title of the action bar to the current sort by type.
      */
-    private void setActionBarTitle(String title) {
+    private void setActionBarTitle() {
         ActionBar actionBar = getSupportActionBar();
         if (actionBar != null) {
-            actionBar.setTitle(title);
+            // The values of the sort by types are their labels.
+            actionBar.setTitle(isTopRatedSelected() || isLocalSortSelected()
+                    || isFavoritesSelected() ? sortBy
+                    : getString(R.string.pref_sort_by_most_popular));
         }
     }
 }
@@ -0,0 +1,597 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1;
+
+import android.app.Application;
+import android.arch.lifecycle.AndroidViewModel;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesMapper;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.catalog.MovieQuery;
+import com.packheng.popularmoviesstage1.data.CachedPage;
+import com.packheng.popularmoviesstage1.data.FavoritesStore;
+import com.packheng.popularmoviesstage1.data.GridSnapshot;
+import com.packheng.popularmoviesstage1.data.MoviesCache;
+import com.packheng.popularmoviesstage1.data.MoviesRepository;
+import com.packheng.popularmoviesstage1.images.PosterColorStore;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.paging.PageTracker;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.packheng.popularmoviesstage1.utils.NetworkUtils.isNetworkConnected;
+
+/**
+ * Holds the movies list shown by {@link MainActivity} and its paging state, so that they survive
+ * configuration changes: a rotated activity renders the movies already loaded straight away,
+ * without any request. The list is either a TMDB list, loaded page by page, the cached movies
+ * sorted and filtered locally, or the favorite movies.
+ */
+public class MoviesViewModel extends AndroidViewModel {
+
+    /** Value of {@link #getEmptyMessage()} while the movies are shown. */
+    public static final int NO_EMPTY_MESSAGE = 0;
+    /** Value of {@link #getEmptyMessage()} while the first page is loaded with nothing shown. */
+    public static final int LOADING = -1;
+
+    private final MoviesRepository moviesRepository;
+    private final FavoritesStore favoritesStore;
+    private final PageTracker pageTracker = new PageTracker();
+    private final int maxCatalogResults;
+    private final File snapshotFile;
+    private MoviesMapper moviesMapper;
+    private PosterSizeResolver posterSizeResolver;
+
+    // Immutable snapshot of the movies shown in the grid.
+    private final MutableLiveData<List<Movie>> movies = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> refreshing = new MutableLiveData<>();
+    private final MutableLiveData<Integer> emptyMessage = new MutableLiveData<>();
+
+    // Endpoint of the list shown, null until the first load and while the catalog is shown.
+    private String endpoint;
+    // Query of the cached movies shown, null while a TMDB list is shown.
+    private MovieQuery catalogQuery;
+    // True while the favorites are shown.
+    private boolean isShowingFavorites;
+    // True while the first page is fetched from the network.
+    private boolean isFetchingFirstPage;
+    // Pages loaded before the process was killed, to load again from the cache.
+    private int restoredPageCount;
+    // Incremented on each reload so that late results of a previous load are ignored.
+    private int loadGeneration;
+    // Lists this view model requested pages of: the repository is shared by the whole app, so
+    // only these requests are cancelled.
+    private final Set<String> requestedEndpoints = new HashSet<>();
+
+    // Shows the favorites again once one was added or removed, e.g. in the details screen.
+    private final FavoritesStore.OnFavoritesChangedListener onFavoritesChangedListener =
+            new FavoritesStore.OnFavoritesChangedListener() {
+                @Override
+                public void onFavoritesChanged() {
+                    if (isShowingFavorites) {
+                        showFavorites();
+                    }
+                }
+            };
+
+    public MoviesViewModel(@NonNull Application application) {
+        super(application);
+        moviesRepository = MoviesRepository.getInstance(application);
+        favoritesStore = FavoritesStore.getInstance(application);
+        favoritesStore.addOnFavoritesChangedListener(onFavoritesChangedListener);
+        maxCatalogResults = application.getResources().getInteger(R.integer.catalog_max_results);
+        snapshotFile = new File(application.getCacheDir(), GridSnapshot.FILE_NAME);
+        movies.setValue(Collections.<Movie>emptyList());
+        refreshing.setValue(false);
+        emptyMessage.setValue(NO_EMPTY_MESSAGE);
+    }
+
+    /**
+     * Sets the size of the grid posters, which depends on the screen width.
+     *
+     * @param resolver resolves the urls of the grid posters.
+     */
+    public void setPosterSizeResolver(PosterSizeResolver resolver) {
+        if (posterSizeResolver != null
+                && posterSizeResolver.getSize().equals(resolver.getSize())) {
+            return;
+        }
+        posterSizeResolver = resolver;
+        AppExecutors executors = AppExecutors.getInstance();
+        moviesMapper = new MoviesMapper(executors.mapping(), executors.mainThread(), resolver,
+                PosterColorStore.getInstance(getApplication()));
+    }
+
+    /**
+     * Shows the movies of the grid saved by {@link #saveSnapshot(String)} straight away, until
+     * the list is loaded. Only done on a cold start, when nothing was loaded yet: the small
+     * snapshot file is read on the calling thread, so that the movies are there for the first
+     * frame.
+     *
+     * @param key identifies the grid about to be loaded, e.g. its sort order and filters.
+     */
+    public void showSnapshot(String key) {
+        if (endpoint != null || catalogQuery != null || isShowingFavorites
+                || !movies.getValue().isEmpty()) {
+            return;
+        }
+        GridSnapshot snapshot = GridSnapshot.read(snapshotFile, key);
+        if (snapshot != null) {
+            // Not added to the movies in memory: the snapshot leaves some fields out.
+            movies.setValue(moviesMapper.mapNowWithColors(snapshot.getMovies()));
+        }
+    }
+
+    /**
+     * Saves the first movies shown in the background, for the next cold start.
+     *
+     * @param key identifies the grid shown, e.g. its sort order and filters.
+     */
+    public void saveSnapshot(String key) {
+        List<Movie> shownMovies = movies.getValue();
+        if (shownMovies == null || shownMovies.isEmpty()) {
+            return;
+        }
+        final GridSnapshot snapshot = new GridSnapshot(key, shownMovies);
+        AppExecutors.getInstance().diskIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                GridSnapshot.write(snapshotFile, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Loads a movies list unless it is already loaded, e.g. by the activity before a
+     * configuration change.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param restoredPageCount number of pages shown before the process was killed, 0 if none.
+     */
+    public void start(String endpoint, int restoredPageCount) {
+        if (endpoint.equals(this.endpoint)) {
+            return;
+        }
+        this.restoredPageCount = restoredPageCount;
+        loadMovies(endpoint, false);
+    }
+
+    /**
+     * Shows the cached movies matching a query unless they are already shown, e.g. by the
+     * activity before a configuration change.
+     *
+     * @param query the filters and the sort keys.
+     */
+    public void start(MovieQuery query) {
+        if (!query.equals(catalogQuery)) {
+            queryCatalog(query);
+        }
+    }
+
+    /**
+     * Shows the favorite movies unless they are already shown, e.g. by the activity before a
+     * configuration change.
+     */
+    public void startFavorites() {
+        if (!isShowingFavorites) {
+            showFavorites();
+        }
+    }
+
+    /**
+     * Replaces the movies shown by the favorite movies, the last added first. Nothing is
+     * requested: the favorites are read from disk and their posters are pinned on disk.
+     */
+    public void showFavorites() {
+        final int generation = ++loadGeneration;
+        endpoint = null;
+        catalogQuery = null;
+        isShowingFavorites = true;
+        restoredPageCount = 0;
+        pageTracker.reset();
+        cancelRequestsExcept(null);
+        isFetchingFirstPage = false;
+        refreshing.setValue(false);
+
+        favoritesStore.load(new FavoritesStore.OnFavoritesLoadedListener() {
+            @Override
+            public void onFavoritesLoaded(List<Movie> favorites) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                moviesMapper.map(favorites, new MoviesMapper.OnMoviesMappedListener() {
+                    @Override
+                    public void onMoviesMapped(List<Movie> mappedMovies) {
+                        if (generation != loadGeneration) {
+                            return;
+                        }
+                        emptyMessage.setValue(mappedMovies.isEmpty()
+                                ? R.string.no_favorites_found : NO_EMPTY_MESSAGE);
+                        showMovies(withPinnedPosters(mappedMovies));
+                    }
+                });
+            }
+        });
+    }
+
+    private List<Movie> withPinnedPosters(List<Movie> favorites) {
+        List<Movie> pinnedFavorites = new ArrayList<>(favorites.size());
+        for (Movie movie : favorites) {
+            String posterUrl = favoritesStore.getPinnedPosterUrl(movie.getId());
+            pinnedFavorites.add(posterUrl.isEmpty() ? movie
+                    : movie.withDisplayFields(posterUrl, movie.getPosterColor(),
+                            movie.getReleaseEpochDay(), movie.getReleaseDateText(),
+                            movie.getUserRatingText()));
+        }
+        return pinnedFavorites;
+    }
+
+    /**
+     * Replaces the movies shown by the cached movies matching a query. Nothing is requested:
+     * the movies are sorted and filtered in the background, and paging stops.
+     *
+     * @param query the filters and the sort keys.
+     */
+    public void queryCatalog(MovieQuery query) {
+        final int generation = ++loadGeneration;
+        endpoint = null;
+        catalogQuery = query;
+        isShowingFavorites = false;
+        restoredPageCount = 0;
+        pageTracker.reset();
+        cancelRequestsExcept(null);
+        isFetchingFirstPage = false;
+        refreshing.setValue(false);
+
+        moviesRepository.queryCatalog(query, maxCatalogResults,
+                new MoviesRepository.OnMoviesFoundListener() {
+                    @Override
+                    public void onMoviesFound(List<Movie> foundMovies) {
+                        if (generation != loadGeneration) {
+                            return;
+                        }
+                        moviesMapper.map(foundMovies, new MoviesMapper.OnMoviesMappedListener() {
+                            @Override
+                            public void onMoviesMapped(List<Movie> mappedMovies) {
+                                if (generation != loadGeneration) {
+                                    return;
+                                }
+                                emptyMessage.setValue(mappedMovies.isEmpty()
+                                        ? R.string.no_cached_movies_found : NO_EMPTY_MESSAGE);
+                                showMovies(mappedMovies);
+                            }
+                        });
+                    }
+                });
+    }
+
+    public LiveData<List<Movie>> getMovies() {
+        return movies;
+    }
+
+    public LiveData<Boolean> getRefreshing() {
+        return refreshing;
+    }
+
+    /**
+     * @return the string resource of the message shown instead of the movies,
+     * {@link #NO_EMPTY_MESSAGE} or {@link #LOADING}.
+     */
+    public LiveData<Integer> getEmptyMessage() {
+        return emptyMessage;
+    }
+
+    public PageTracker getPageTracker() {
+        return pageTracker;
+    }
+
+    /**
+     * @return the number of pages shown, to save in case the process is killed.
+     */
+    public int getLoadedPageCount() {
+        return pageTracker.getLastLoadedPage();
+    }
+
+    /**
+     * Loads the first page of movies data, replacing the movies currently shown.
+     * A cached page is shown straight away and only refreshed from the network when it is stale,
+     * or when the user explicitly asked for a refresh.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param forceRefresh true to refresh the cached page from the network even if it is fresh.
+     */
+    public void loadMovies(final String endpoint, final boolean forceRefresh) {
+        final int generation = ++loadGeneration;
+        this.endpoint = endpoint;
+        catalogQuery = null;
+        isShowingFavorites = false;
+
+        // Forget the pages of the previous list, and any page still being loaded for it.
+        // Pages of the same list still in flight are kept: a new request joins them.
+        pageTracker.reset();
+        cancelRequestsExcept(endpoint);
+        isFetchingFirstPage = false;
+        pageTracker.onPageRequested();
+        refreshing.setValue(forceRefresh);
+
+        moviesRepository.loadCachedPage(endpoint, PageTracker.FIRST_PAGE,
+                new MoviesCache.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(@Nullable CachedPage cachedPage) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+
+                boolean hasCachedPage = cachedPage != null;
+                if (hasCachedPage) {
+                    MoviesPage firstPage = cachedPage.getResponse();
+                    showFirstPage(firstPage);
+                    if (!forceRefresh && !cachedPage.isStale(MoviesCache.DEFAULT_TTL_MILLIS)) {
+                        refreshing.setValue(false);
+                        warmUp(endpoint, firstPage.getTotalPages());
+                        return;
+                    }
+                    // Revalidate in the background.
+                } else {
+                    refreshing.setValue(true);
+                }
+                fetchFirstPage(generation, endpoint, hasCachedPage);
+            }
+        });
+    }
+
+    /**
+     * Fetches the first page of movies data from the network.
+     *
+     * @param generation the load the request belongs to.
+     * @param endpoint the TMDB endpoint of the list.
+     * @param hasCachedPage true if a cached page is already shown.
+     */
+    private void fetchFirstPage(final int generation, final String endpoint,
+                                final boolean hasCachedPage) {
+        if (!isNetworkConnected(getApplication())) {
+            refreshing.setValue(false);
+            pageTracker.onPageFailed();
+            if (!hasCachedPage) {
+                emptyMessage.setValue(R.string.no_internet);
+            }
+            return;
+        }
+
+        if (!hasCachedPage) {
+            emptyMessage.setValue(LOADING);
+        }
+
+        // Accessing the API
+        isFetchingFirstPage = true;
+        fetchPage(endpoint, PageTracker.FIRST_PAGE,
+                new MoviesRequestCoordinator.OnPageListener() {
+            @Override
+            public void onPageLoaded(MoviesPage moviesPage) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                isFetchingFirstPage = false;
+                refreshing.setValue(false);
+                showFirstPage(moviesPage);
+                warmUp(endpoint, moviesPage.getTotalPages());
+            }
+
+            @Override
+            public void onPageFailed() {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                isFetchingFirstPage = false;
+                refreshing.setValue(false);
+                pageTracker.onPageFailed();
+                if (!hasCachedPage) {
+                    emptyMessage.setValue(R.string.issue_with_fetching_data);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the next page of movies data and appends it to the movies currently shown.
+     * A fresh cached page is used when there is one; otherwise the page is fetched from the
+     * network, falling back to a stale cached page. Failures are silent: the page is requested
+     * again on the next scroll.
+     */
+    public void loadNextPage() {
+        if (endpoint == null || pageTracker.isLoading() || !pageTracker.hasMorePages()) {
+            return;
+        }
+
+        final int generation = loadGeneration;
+        final String endpoint = this.endpoint;
+        final int page = pageTracker.getNextPage();
+        pageTracker.onPageRequested();
+
+        moviesRepository.loadCachedPage(endpoint, page, new MoviesCache.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(@Nullable CachedPage cachedPage) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (cachedPage != null && !cachedPage.isStale(MoviesCache.DEFAULT_TTL_MILLIS)) {
+                    appendPage(cachedPage.getResponse());
+                } else {
+                    fetchNextPage(generation, endpoint, page, cachedPage);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetches a next page of movies data from the network.
+     *
+     * @param generation the load the request belongs to.
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page to fetch.
+     * @param stalePage the stale cached version of the page, if any, used if the fetch fails.
+     */
+    private void fetchNextPage(final int generation, final String endpoint, final int page,
+                               @Nullable final CachedPage stalePage) {
+        if (!isNetworkConnected(getApplication())) {
+            appendStalePage(stalePage);
+            return;
+        }
+
+        fetchPage(endpoint, page, new MoviesRequestCoordinator.OnPageListener() {
+            @Override
+            public void onPageLoaded(MoviesPage moviesPage) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                appendPage(moviesPage);
+            }
+
+            @Override
+            public void onPageFailed() {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                appendStalePage(stalePage);
+            }
+        });
+    }
+
+    /**
+     * Replaces the movies shown by the ones of a first page.
+     *
+     * @param response the first page.
+     */
+    private void showFirstPage(final MoviesPage response) {
+        final int generation = loadGeneration;
+        moviesMapper.map(response.getMovies(), new MoviesMapper.OnMoviesMappedListener() {
+            @Override
+            public void onMoviesMapped(List<Movie> mappedMovies) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                pageTracker.onPageLoaded(response.getPage(), response.getTotalPages());
+                if (isFetchingFirstPage) {
+                    // The first page is being refreshed: no paging until it is replaced.
+                    pageTracker.onPageRequested();
+                }
+                emptyMessage.setValue(NO_EMPTY_MESSAGE);
+                showMovies(mappedMovies);
+                loadRestoredPages();
+            }
+        });
+    }
+
+    /**
+     * Appends the movies of a next page to the movies shown.
+     *
+     * @param response the next page.
+     */
+    private void appendPage(final MoviesPage response) {
+        final int generation = loadGeneration;
+        moviesMapper.map(response.getMovies(), new MoviesMapper.OnMoviesMappedListener() {
+            @Override
+            public void onMoviesMapped(List<Movie> mappedMovies) {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                pageTracker.onPageLoaded(response.getPage(), response.getTotalPages());
+                // Rankings move between requests, so a movie may show up again in a next page.
+                List<Movie> shownMovies = movies.getValue();
+                Set<Integer> shownIds = new HashSet<>();
+                for (Movie movie : shownMovies) {
+                    shownIds.add(movie.getId());
+                }
+                List<Movie> mergedMovies = new ArrayList<>(shownMovies);
+                for (Movie movie : mappedMovies) {
+                    if (shownIds.add(movie.getId())) {
+                        mergedMovies.add(movie);
+                    }
+                }
+                showMovies(mergedMovies);
+                loadRestoredPages();
+            }
+        });
+    }
+
+    /**
+     * Loads the next page while fewer pages are shown than before the process was killed.
+     */
+    private void loadRestoredPages() {
+        if (getLoadedPageCount() < restoredPageCount) {
+            loadNextPage();
+        } else {
+            restoredPageCount = 0;
+        }
+    }
+
+    private void fetchPage(String endpoint, int page,
+                           MoviesRequestCoordinator.OnPageListener listener) {
+        requestedEndpoints.add(endpoint);
+        moviesRepository.fetchPage(endpoint, page, listener);
+    }
+
+    private void warmUp(String endpoint, int totalPages) {
+        requestedEndpoints.add(endpoint);
+        moviesRepository.warmUp(endpoint, totalPages);
+    }
+
+    /**
+     * Cancels the requests this view model started for other lists than the given one.
+     *
+     * @param keptEndpoint the endpoint of the list whose requests are kept, null to cancel them
+     *                     all.
+     */
+    private void cancelRequestsExcept(@Nullable String keptEndpoint) {
+        Set<String> endpoints = new HashSet<>(requestedEndpoints);
+        endpoints.remove(keptEndpoint);
+        moviesRepository.cancelRequests(endpoints);
+        requestedEndpoints.removeAll(endpoints);
+    }
+
+    private void showMovies(List<Movie> newMovies) {
+        List<Movie> snapshot = Collections.unmodifiableList(newMovies);
+        moviesRepository.putMovies(snapshot);
+        movies.setValue(snapshot);
+    }
+
+    private void appendStalePage(@Nullable CachedPage stalePage) {
+        if (stalePage != null) {
+            appendPage(stalePage.getResponse());
+        } else {
+            pageTracker.onPageFailed();
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelRequestsExcept(null);
+        favoritesStore.removeOnFavoritesChangedListener(onFavoritesChangedListener);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1;
+
+import android.arch.lifecycle.Observer;
+import android.arch.lifecycle.ViewModelProviders;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.util.DisplayMetrics;
+import android.view.Menu;
+import android.view.View;
+import android.widget.TextView;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesAdapter;
+import com.packheng.popularmoviesstage1.images.GridPosterLoader;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+
+import java.util.List;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateBestSpanCount;
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateCellWidth;
+
+/**
+ * Searches the movies by title and overview as the user types.
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    private MoviesAdapter moviesAdapter;
+    private GridPosterLoader gridPosterLoader;
+    private SearchViewModel searchViewModel;
+
+    @BindView(R.id.search_rv) RecyclerView moviesRecyclerView;
+    @BindView(R.id.search_empty_tv) TextView emptyTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_search);
+        ButterKnife.bind(this);
+
+        // Same grid as the main screen.
+        DisplayMetrics displayMetrics = new DisplayMetrics();
+        getWindowManager().getDefaultDisplay().getMetrics(displayMetrics);
+        int posterWidth = (int) getResources().getDimension(R.dimen.main_movie_poster_width);
+        int numberOfColumns = calculateBestSpanCount(displayMetrics, posterWidth);
+
+        searchViewModel = ViewModelProviders.of(this).get(SearchViewModel.class);
+        int cellWidth = calculateCellWidth(displayMetrics, posterWidth, numberOfColumns);
+        int posterHeight = (int) getResources().getDimension(R.dimen.main_movie_poster_height);
+        PosterSizeResolver posterSizeResolver = new PosterSizeResolver(cellWidth,
+                cellWidth * posterHeight / posterWidth);
+        searchViewModel.setPosterSizeResolver(posterSizeResolver);
+
+        moviesRecyclerView.setHasFixedSize(true);
+        ImagePipeline imagePipeline = ImagePipeline.getInstance(this);
+        gridPosterLoader = new GridPosterLoader(imagePipeline.getPicasso(),
+                imagePipeline.getBitmapPool(), posterSizeResolver,
+                getResources().getBoolean(R.bool.poster_decode_rgb_565));
+        moviesAdapter = new MoviesAdapter(this, gridPosterLoader);
+        moviesRecyclerView.setAdapter(moviesAdapter);
+        moviesRecyclerView.setLayoutManager(new GridLayoutManager(this, numberOfColumns));
+        moviesRecyclerView.addOnScrollListener(gridPosterLoader);
+
+        searchViewModel.getMovies().observe(this, new Observer<List<Movie>>() {
+            @Override
+            public void onChanged(@Nullable List<Movie> movies) {
+                moviesAdapter.submitList(movies);
+            }
+        });
+
+        searchViewModel.getEmptyMessage().observe(this, new Observer<Integer>() {
+            @Override
+            public void onChanged(@Nullable Integer messageResId) {
+                if (messageResId == null || messageResId == SearchViewModel.NO_EMPTY_MESSAGE) {
+                    emptyTextView.setVisibility(View.GONE);
+                    moviesRecyclerView.setVisibility(View.VISIBLE);
+                } else {
+                    moviesRecyclerView.setVisibility(View.GONE);
+                    emptyTextView.setVisibility(View.VISIBLE);
+                    emptyTextView.setText(messageResId);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.search_menu, menu);
+
+        SearchView searchView =
+                (SearchView) menu.findItem(R.id.menu_item_search_view).getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setMaxWidth(Integer.MAX_VALUE);
+        searchView.setIconified(false);
+        // The query survives configuration changes in the ViewModel.
+        searchView.setQuery(searchViewModel.getQuery(), false);
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchViewModel.search(query);
+                return false;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                searchViewModel.search(newText);
+                return true;
+            }
+        });
+        return true;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        gridPosterLoader.cancel();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1;
+
+import android.app.Application;
+import android.arch.lifecycle.AndroidViewModel;
+import android.arch.lifecycle.LiveData;
+import android.arch.lifecycle.MutableLiveData;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesMapper;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.data.MoviesRepository;
+import com.packheng.popularmoviesstage1.images.PosterColorStore;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+
+import static com.packheng.popularmoviesstage1.utils.NetworkUtils.isNetworkConnected;
+
+/**
+ * Holds the query and the movies found by {@link SearchActivity}.
+ * <p>
+ * The cached movies are searched on each change of the query. TMDB is only searched when they
+ * are too few, once the user stops typing for a moment, and its results are appended to them.
+ */
+public class SearchViewModel extends AndroidViewModel {
+
+    /** Value of {@link #getEmptyMessage()} while movies are found or nothing is searched. */
+    public static final int NO_EMPTY_MESSAGE = 0;
+
+    private final MoviesRepository moviesRepository;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final int debounceMillis;
+    private final int minCachedResults;
+    private final int maxResults;
+    private MoviesMapper moviesMapper;
+    private PosterSizeResolver posterSizeResolver;
+
+    private final MutableLiveData<List<Movie>> movies = new MutableLiveData<>();
+    private final MutableLiveData<Integer> emptyMessage = new MutableLiveData<>();
+
+    private String query = "";
+    // Incremented on each query so that late results of a previous query are ignored.
+    private int searchGeneration;
+    // TMDB search waiting for the user to stop typing, and the request once started.
+    private Runnable pendingSearch;
+    private Call<MoviesPage> searchCall;
+
+    public SearchViewModel(@NonNull Application application) {
+        super(application);
+        moviesRepository = MoviesRepository.getInstance(application);
+        debounceMillis = application.getResources().getInteger(R.integer.search_debounce_millis);
+        minCachedResults = application.getResources()
+                .getInteger(R.integer.search_min_cached_results);
+        maxResults = application.getResources().getInteger(R.integer.search_max_results);
+        movies.setValue(Collections.<Movie>emptyList());
+        emptyMessage.setValue(NO_EMPTY_MESSAGE);
+    }
+
+    /**
+     * Sets the size of the grid posters, which depends on the screen width.
+     *
+     * @param resolver resolves the urls of the grid posters.
+     */
+    public void setPosterSizeResolver(PosterSizeResolver resolver) {
+        if (posterSizeResolver != null
+                && posterSizeResolver.getSize().equals(resolver.getSize())) {
+            return;
+        }
+        posterSizeResolver = resolver;
+        AppExecutors executors = AppExecutors.getInstance();
+        moviesMapper = new MoviesMapper(executors.mapping(), executors.mainThread(), resolver,
+                PosterColorStore.getInstance(getApplication()));
+    }
+
+    public LiveData<List<Movie>> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return the string resource of the message shown instead of the movies, or
+     * {@link #NO_EMPTY_MESSAGE}.
+     */
+    public LiveData<Integer> getEmptyMessage() {
+        return emptyMessage;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Searches the movies matching a query, replacing the movies found for the previous one.
+     *
+     * @param newQuery the query, e.g. as typed by the user.
+     */
+    public void search(String newQuery) {
+        final String trimmedQuery = newQuery.trim();
+        if (trimmedQuery.equals(query)) {
+            return;
+        }
+        query = trimmedQuery;
+        final int generation = ++searchGeneration;
+        cancelTmdbSearch();
+
+        if (trimmedQuery.isEmpty()) {
+            showMovies(Collections.<Movie>emptyList(), NO_EMPTY_MESSAGE);
+            return;
+        }
+
+        moviesRepository.searchCachedMovies(trimmedQuery, maxResults,
+                new MoviesRepository.OnMoviesFoundListener() {
+                    @Override
+                    public void onMoviesFound(List<Movie> foundMovies) {
+                        if (generation != searchGeneration) {
+                            return;
+                        }
+                        moviesMapper.map(foundMovies, new MoviesMapper.OnMoviesMappedListener() {
+                            @Override
+                            public void onMoviesMapped(List<Movie> cachedMovies) {
+                                if (generation != searchGeneration) {
+                                    return;
+                                }
+                                boolean isTooFew = cachedMovies.size() < minCachedResults;
+                                showMovies(cachedMovies, isTooFew ? NO_EMPTY_MESSAGE
+                                        : R.string.no_movies_found);
+                                if (isTooFew) {
+                                    scheduleTmdbSearch(generation, trimmedQuery, cachedMovies);
+                                }
+                            }
+                        });
+                    }
+                });
+    }
+
+    /**
+     * Searches TMDB once the query didn't change for a moment.
+     *
+     * @param generation the query the search belongs to.
+     * @param query the query.
+     * @param cachedMovies the cached movies found, shown first.
+     */
+    private void scheduleTmdbSearch(final int generation, final String query,
+                                    final List<Movie> cachedMovies) {
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                pendingSearch = null;
+                if (!isNetworkConnected(getApplication())) {
+                    showMovies(cachedMovies, R.string.no_internet);
+                    return;
+                }
+                searchCall = moviesRepository.searchMovies(query,
+                        new MoviesRequestCoordinator.OnPageListener() {
+                            @Override
+                            public void onPageLoaded(MoviesPage moviesPage) {
+                                if (generation == searchGeneration) {
+                                    searchCall = null;
+                                    appendTmdbMovies(generation, cachedMovies,
+                                            moviesPage.getMovies());
+                                }
+                            }
+
+                            @Override
+                            public void onPageFailed() {
+                                if (generation == searchGeneration) {
+                                    searchCall = null;
+                                    showMovies(cachedMovies, R.string.issue_with_fetching_data);
+                                }
+                            }
+                        });
+            }
+        };
+        handler.postDelayed(pendingSearch, debounceMillis);
+    }
+
+    private void appendTmdbMovies(final int generation, final List<Movie> cachedMovies,
+                                  List<Movie> tmdbMovies) {
+        moviesMapper.map(tmdbMovies, new MoviesMapper.OnMoviesMappedListener() {
+            @Override
+            public void onMoviesMapped(List<Movie> mappedMovies) {
+                if (generation != searchGeneration) {
+                    return;
+                }
+                Set<Integer> foundIds = new HashSet<>();
+                List<Movie> mergedMovies = new ArrayList<>();
+                for (Movie movie : cachedMovies) {
+                    foundIds.add(movie.getId());
+                    mergedMovies.add(movie);
+                }
+                for (Movie movie : mappedMovies) {
+                    if (foundIds.add(movie.getId()) && mergedMovies.size() < maxResults) {
+                        mergedMovies.add(movie);
+                    }
+                }
+                showMovies(mergedMovies, R.string.no_movies_found);
+            }
+        });
+    }
+
+    /**
+     * @param foundMovies the movies found.
+     * @param emptyMessageResId the message shown if there's none, or {@link #NO_EMPTY_MESSAGE}.
+     */
+    private void showMovies(List<Movie> foundMovies, int emptyMessageResId) {
+        List<Movie> snapshot = Collections.unmodifiableList(foundMovies);
+        // The details screen finds the movies opened in memory.
+        moviesRepository.putMovies(snapshot);
+        movies.setValue(snapshot);
+        emptyMessage.setValue(snapshot.isEmpty() ? emptyMessageResId : NO_EMPTY_MESSAGE);
+    }
+
+    private void cancelTmdbSearch() {
+        if (pendingSearch != null) {
+            handler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (searchCall != null) {
+            searchCall.cancel();
+            searchCall = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancelTmdbSearch();
+    }
+}
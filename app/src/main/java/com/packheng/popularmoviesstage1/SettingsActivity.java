@@ -18,6 +18,8 @@ package com.packheng.popularmoviesstage1;
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
@@ -25,8 +27,17 @@ import android.support.annotation.Nullable;
 import android.support.v4.app.NavUtils;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
 import android.view.MenuItem;
 
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+import com.packheng.popularmoviesstage1.data.GenreStore;
+import com.packheng.popularmoviesstage1.data.GenreTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 public class SettingsActivity extends AppCompatActivity {
 
     @Override
@@ -44,18 +55,51 @@ public class SettingsActivity extends AppCompatActivity {
     public static class SettingsPreferenceFragment extends PreferenceFragment
         implements Preference.OnPreferenceChangeListener {
 
+        private Preference minVotesPreference;
+        private Preference languagePreference;
+        private MultiSelectListPreference genresPreference;
+        // Value of the sort preference, which the filters depend on.
+        private String sortBy;
+        private boolean areGenresLoaded;
+
         @Override
         public void onCreate(@Nullable Bundle savedInstanceState) {
             super.onCreate(savedInstanceState);
             addPreferencesFromResource(R.xml.settings_main);
 
+            minVotesPreference = findPreference(getString(R.string.pref_min_votes_key));
+            languagePreference = findPreference(getString(R.string.pref_language_key));
+            genresPreference = (MultiSelectListPreference)
+                    findPreference(getString(R.string.pref_genres_key));
+
             Preference sortBy = findPreference(getString(R.string.pref_sort_by_key));
             bindPreferenceSummaryToValue(sortBy);
+            bindPreferenceSummaryToValue(minVotesPreference);
+            bindPreferenceSummaryToValue(languagePreference);
+            bindGenresPreference(genresPreference);
         }
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object newValue) {
+            if (preference.getKey().equals(getString(R.string.pref_sort_by_key))) {
+                sortBy = newValue.toString();
+                updateFiltersEnabled();
+            }
+            if (preference instanceof MultiSelectListPreference) {
+                preference.setSummary(getSummary((MultiSelectListPreference) preference,
+                        toStringSet(newValue)));
+                return true;
+            }
             String s = newValue.toString();
+            // Show the label of the value rather than the value itself.
+            if (preference instanceof ListPreference) {
+                ListPreference listPreference = (ListPreference) preference;
+                int index = listPreference.findIndexOfValue(s);
+                if (index >= 0) {
+                    preference.setSummary(listPreference.getEntries()[index]);
+                    return true;
+                }
+            }
             preference.setSummary(s);
             return true;
         }
@@ -67,6 +111,65 @@ public class SettingsActivity extends AppCompatActivity {
             String preferenceString = preferences.getString(preference.getKey(),"");
             onPreferenceChange(preference, preferenceString);
         }
+
+        /**
+         * Lists the genres in the genre filter once they are loaded. The genres selected are
+         * stored by TMDB id.
+         */
+        private void bindGenresPreference(final MultiSelectListPreference preference) {
+            preference.setSummary(R.string.pref_genres_loading);
+            GenreStore.getInstance(getActivity()).load(new GenreStore.OnGenresLoadedListener() {
+                @Override
+                public void onGenresLoaded(@Nullable GenreTable genres) {
+                    if (genres == null || !isAdded()) {
+                        return;
+                    }
+                    List<MovieDetails.Genre> genreList = genres.getGenres();
+                    CharSequence[] names = new CharSequence[genreList.size()];
+                    CharSequence[] ids = new CharSequence[genreList.size()];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = genreList.get(i).getName();
+                        ids[i] = String.valueOf(genreList.get(i).getId());
+                    }
+                    preference.setEntries(names);
+                    preference.setEntryValues(ids);
+                    areGenresLoaded = true;
+                    updateFiltersEnabled();
+                    preference.setOnPreferenceChangeListener(SettingsPreferenceFragment.this);
+                    onPreferenceChange(preference, preference.getValues());
+                }
+            });
+        }
+
+        /**
+         * Enables the filters for the sorts of the cached movies only: the TMDB lists are shown as
+         * TMDB sorts them, unfiltered.
+         */
+        private void updateFiltersEnabled() {
+            boolean isLocalSort = getString(R.string.pref_sort_by_newest).equals(sortBy)
+                    || getString(R.string.pref_sort_by_most_voted).equals(sortBy);
+            minVotesPreference.setEnabled(isLocalSort);
+            languagePreference.setEnabled(isLocalSort);
+            genresPreference.setEnabled(isLocalSort && areGenresLoaded);
+        }
+
+        private String getSummary(MultiSelectListPreference preference, Set<String> values) {
+            List<CharSequence> names = new ArrayList<>();
+            CharSequence[] entries = preference.getEntries();
+            CharSequence[] entryValues = preference.getEntryValues();
+            for (int i = 0; i < entryValues.length; i++) {
+                if (values.contains(entryValues[i].toString())) {
+                    names.add(entries[i]);
+                }
+            }
+            return names.isEmpty() ? getString(R.string.pref_genres_any)
+                    : TextUtils.join(", ", names);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Set<String> toStringSet(Object value) {
+            return (Set<String>) value;
+        }
     }
 
     @Override
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.TMDB;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The genres of the movies on TMDB, as returned by {@link TMDBEndpointInterface#movieGenres}.
+ */
+public class GenreList {
+    @SerializedName("genres")
+    private List<MovieDetails.Genre> genres;
+
+    public GenreList(List<MovieDetails.Genre> genres) {
+        this.genres = genres;
+    }
+
+    public List<MovieDetails.Genre> getGenres() {
+        return genres != null ? genres : Collections.<MovieDetails.Genre>emptyList();
+    }
+}
@@ -16,74 +16,240 @@
 
 package com.packheng.popularmoviesstage1.TMDB;
 
+import com.packheng.popularmoviesstage1.images.DominantColor;
+import com.packheng.popularmoviesstage1.utils.DateToStringUtils;
+
+import java.util.Arrays;
+
 /**
  * {@link Movie} class encapsulates data that are relevant to a movie.
+ * Instances are immutable: the display fields (poster url, poster color, release date as an
+ * epoch day, formatted release date and user rating) are added by {@link MoviesMapper} in the
+ * background, creating new instances.
  */
 public class Movie {
-    private String title;
-    private String posterUrl;
-    private String plotSynopsis;
-    private double userRating;
-    private String releaseDate;
+    private static final String EMPTY_STRING = "";
+    private static final int[] NO_GENRE_IDS = new int[0];
+
+    private final int id;
+    private final String title;
+    private final String posterPath;
+    private final String plotSynopsis;
+    private final double userRating;
+    private final String releaseDate;
+    private final int voteCount;
+    private final double popularity;
+    private final String originalLanguage;
+    private final boolean adult;
+    private final int[] genreIds;
+    private final String localizedTitle;
+
+    private final String posterUrl;
+    private final int posterColor;
+    private final int releaseEpochDay;
+    private final String releaseDateText;
+    private final String userRatingText;
 
-    public Movie() {
+    public Movie(int id, String title, String posterPath, String plotSynopsis, double userRating,
+                 String releaseDate) {
+        this(id, title, posterPath, plotSynopsis, userRating, releaseDate, 0, 0, EMPTY_STRING,
+                false, NO_GENRE_IDS);
     }
 
-    public Movie(String title, String posterUrl, String plotSynopsis, double userRating, String releaseDate) {
+    /**
+     * @param voteCount the number of votes of the user rating.
+     * @param popularity the TMDB popularity score.
+     * @param originalLanguage the ISO 639-1 code of the original language, e.g. "en".
+     * @param adult true for adult movies.
+     * @param genreIds the TMDB ids of the genres of the movie, not modified afterwards.
+     */
+    public Movie(int id, String title, String posterPath, String plotSynopsis, double userRating,
+                 String releaseDate, int voteCount, double popularity, String originalLanguage,
+                 boolean adult, int[] genreIds) {
+        this(id, title, posterPath, plotSynopsis, userRating, releaseDate, voteCount, popularity,
+                originalLanguage, adult, genreIds, EMPTY_STRING);
+    }
+
+    /**
+     * @param title the original title, which is shown.
+     * @param localizedTitle the title in the language of the request, empty if unknown.
+     */
+    public Movie(int id, String title, String posterPath, String plotSynopsis, double userRating,
+                 String releaseDate, int voteCount, double popularity, String originalLanguage,
+                 boolean adult, int[] genreIds, String localizedTitle) {
+        this(id, title, posterPath, plotSynopsis, userRating, releaseDate, voteCount, popularity,
+                originalLanguage, adult, genreIds, localizedTitle, EMPTY_STRING,
+                DominantColor.NO_COLOR, DateToStringUtils.INVALID_DATE, EMPTY_STRING,
+                EMPTY_STRING);
+    }
+
+    private Movie(int id, String title, String posterPath, String plotSynopsis, double userRating,
+                  String releaseDate, int voteCount, double popularity, String originalLanguage,
+                  boolean adult, int[] genreIds, String localizedTitle, String posterUrl,
+                  int posterColor, int releaseEpochDay, String releaseDateText,
+                  String userRatingText) {
+        this.id = id;
         this.title = title;
-        this.posterUrl = posterUrl;
+        this.posterPath = posterPath;
         this.plotSynopsis = plotSynopsis;
         this.userRating = userRating;
         this.releaseDate = releaseDate;
+        this.voteCount = voteCount;
+        this.popularity = popularity;
+        this.originalLanguage = originalLanguage;
+        this.adult = adult;
+        this.genreIds = genreIds;
+        this.localizedTitle = localizedTitle;
+        this.posterUrl = posterUrl;
+        this.posterColor = posterColor;
+        this.releaseEpochDay = releaseEpochDay;
+        this.releaseDateText = releaseDateText;
+        this.userRatingText = userRatingText;
+    }
+
+    /**
+     * Creates a copy of this movie with its display fields.
+     *
+     * @param posterUrl the url of the poster shown in the grid.
+     * @param posterColor the dominant color of the poster, or {@link DominantColor#NO_COLOR} if
+     *                    unknown.
+     * @param releaseEpochDay the release date as a number of days since 1970-01-01, or
+     *                        {@link DateToStringUtils#INVALID_DATE} if unknown.
+     * @param releaseDateText the formatted release date, empty if unknown.
+     * @param userRatingText the formatted user rating.
+     * @return a new {@link Movie}.
+     */
+    public Movie withDisplayFields(String posterUrl, int posterColor, int releaseEpochDay,
+                                   String releaseDateText, String userRatingText) {
+        return new Movie(id, title, posterPath, plotSynopsis, userRating, releaseDate, voteCount,
+                popularity, originalLanguage, adult, genreIds, localizedTitle, posterUrl,
+                posterColor, releaseEpochDay, releaseDateText, userRatingText);
+    }
+
+    public int getId() {
+        return id;
     }
 
     public String getTitle() {
         return title;
     }
 
-    public void setTitle(String title) {
-        this.title = title;
+    public String getPosterPath() {
+        return posterPath;
+    }
+
+    public String getPlotSynopsis() {
+        return plotSynopsis;
+    }
+
+    public double getUserRating() {
+        return userRating;
+    }
+
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    public int getVoteCount() {
+        return voteCount;
+    }
+
+    public double getPopularity() {
+        return popularity;
+    }
+
+    public String getOriginalLanguage() {
+        return originalLanguage;
+    }
+
+    public boolean isAdult() {
+        return adult;
+    }
+
+    /**
+     * @return the TMDB ids of the genres of the movie. The array must not be modified.
+     */
+    public int[] getGenreIds() {
+        return genreIds;
+    }
+
+    /**
+     * @return the title in the language of the request, empty if unknown. {@link #getTitle()} is
+     * the original title.
+     */
+    public String getLocalizedTitle() {
+        return localizedTitle;
     }
 
     public String getPosterUrl() {
         return posterUrl;
     }
 
-    public void setPosterUrl(String posterUrl) {
-        this.posterUrl = posterUrl;
+    public int getPosterColor() {
+        return posterColor;
     }
 
-    public String getPlotSynopsis() {
-        return plotSynopsis;
+    public int getReleaseEpochDay() {
+        return releaseEpochDay;
     }
 
-    public void setPlotSynopsis(String plotSynopsis) {
-        this.plotSynopsis = plotSynopsis;
+    public String getReleaseDateText() {
+        return releaseDateText;
     }
 
-    public Double getUserRating() {
-        return userRating;
+    public String getUserRatingText() {
+        return userRatingText;
     }
 
-    public void setUserRating(double userRating) {
-        this.userRating = userRating;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Movie movie = (Movie) o;
+        return id == movie.id
+                && posterColor == movie.posterColor
+                && releaseEpochDay == movie.releaseEpochDay
+                && Double.compare(movie.userRating, userRating) == 0
+                && voteCount == movie.voteCount
+                && Double.compare(movie.popularity, popularity) == 0
+                && adult == movie.adult
+                && Arrays.equals(genreIds, movie.genreIds)
+                && equalsNullable(originalLanguage, movie.originalLanguage)
+                && equalsNullable(title, movie.title)
+                && equalsNullable(localizedTitle, movie.localizedTitle)
+                && equalsNullable(posterPath, movie.posterPath)
+                && equalsNullable(plotSynopsis, movie.plotSynopsis)
+                && equalsNullable(releaseDate, movie.releaseDate)
+                && equalsNullable(posterUrl, movie.posterUrl)
+                && equalsNullable(releaseDateText, movie.releaseDateText)
+                && equalsNullable(userRatingText, movie.userRatingText);
     }
 
-    public String getReleaseDate() {
-        return releaseDate;
+    @Override
+    public int hashCode() {
+        int result = id;
+        result = 31 * result + (title != null ? title.hashCode() : 0);
+        result = 31 * result + (posterUrl != null ? posterUrl.hashCode() : 0);
+        return result;
     }
 
-    public void setReleaseDate(String releaseDate) {
-        this.releaseDate = releaseDate;
+    private static boolean equalsNullable(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
     }
 
     @Override
     public String toString() {
         final String NL = "\n";
 
-        return "Title: " + getTitle() + NL +
+        return "Id: " + getId() + NL +
+                "Title: " + getTitle() + NL +
                 "Overview: " + getPlotSynopsis() + NL +
                 "Poster url: " + getPosterUrl() + NL +
+                "Poster path: " + getPosterPath() + NL +
                 "User rating: " + getUserRating() + NL +
                 "Release date: "+ getReleaseDate() + NL;
     }
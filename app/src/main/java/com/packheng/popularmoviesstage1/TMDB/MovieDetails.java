@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link MovieDetails} class encapsulates the details of a movie returned by the TMDB movie
+ * endpoint together with its videos and reviews, decoded by {@link MovieDetailsTypeAdapter}.
+ * Instances are immutable.
+ */
+public class MovieDetails {
+    /** The runtime of a movie isn't known. */
+    public static final int UNKNOWN_RUNTIME = 0;
+
+    private final Movie movie;
+    private final int runtimeMinutes;
+    private final List<Genre> genres;
+    private final List<Video> videos;
+    private final List<Review> reviews;
+
+    public MovieDetails(Movie movie, int runtimeMinutes, List<Genre> genres, List<Video> videos,
+                        List<Review> reviews) {
+        this.movie = movie;
+        this.runtimeMinutes = runtimeMinutes;
+        this.genres = Collections.unmodifiableList(genres);
+        this.videos = Collections.unmodifiableList(videos);
+        this.reviews = Collections.unmodifiableList(reviews);
+    }
+
+    /**
+     * @return the fields of the movie also found in the lists, without the display fields.
+     */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * @return the runtime in minutes, or {@link #UNKNOWN_RUNTIME}.
+     */
+    public int getRuntimeMinutes() {
+        return runtimeMinutes;
+    }
+
+    public List<Genre> getGenres() {
+        return genres;
+    }
+
+    public List<Video> getVideos() {
+        return videos;
+    }
+
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * A TMDB genre.
+     */
+    public static class Genre {
+        private final int id;
+        private final String name;
+
+        public Genre(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * A video of a movie, e.g. a trailer on YouTube.
+     */
+    public static class Video {
+        private static final String YOUTUBE_SITE = "YouTube";
+        private static final String YOUTUBE_WATCH_URL = "https://www.youtube.com/watch?v=";
+
+        private final String key;
+        private final String name;
+        private final String site;
+        private final String type;
+
+        public Video(String key, String name, String site, String type) {
+            this.key = key;
+            this.name = name;
+            this.site = site;
+            this.type = type;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSite() {
+            return site;
+        }
+
+        /**
+         * @return the type of the video, e.g. "Trailer" or "Teaser".
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return the url to watch the video, or an empty string if its site isn't supported.
+         */
+        public String getWatchUrl() {
+            if (YOUTUBE_SITE.equals(site) && key != null && !key.isEmpty()) {
+                return YOUTUBE_WATCH_URL + key;
+            }
+            return "";
+        }
+    }
+
+    /**
+     * A review of a movie by a TMDB user.
+     */
+    public static class Review {
+        private final String author;
+        private final String content;
+
+        public Review(String author, String content) {
+            this.author = author;
+            this.content = content;
+        }
+
+        public String getAuthor() {
+            return author;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
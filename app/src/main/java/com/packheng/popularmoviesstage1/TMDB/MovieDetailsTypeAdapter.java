@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.ADULT;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.EMPTY_STRING;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.ID;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.ORIGINAL_LANGUAGE;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.ORIGINAL_TITLE;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.OVERVIEW;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.POPULARITY;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.POSTER_PATH;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.RELEASE_DATE;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.TITLE;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.VOTE_AVERAGE;
+import static com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter.VOTE_COUNT;
+
+/**
+ * Streams the response of the TMDB movie endpoint, with the videos and reviews appended to it,
+ * straight into a {@link MovieDetails}. The fields that aren't displayed are skipped. Details are
+ * written back in the same JSON shape so that cached details can be read by the same code.
+ */
+public class MovieDetailsTypeAdapter extends TypeAdapter<MovieDetails> {
+    private static final String RUNTIME = "runtime";
+    private static final String GENRES = "genres";
+    private static final String VIDEOS = "videos";
+    private static final String REVIEWS = "reviews";
+    private static final String RESULTS = "results";
+
+    private static final String NAME = "name";
+    private static final String KEY = "key";
+    private static final String SITE = "site";
+    private static final String TYPE = "type";
+    private static final String AUTHOR = "author";
+    private static final String CONTENT = "content";
+
+    @Override
+    public MovieDetails read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        int id = 0;
+        String title = EMPTY_STRING;
+        String posterPath = EMPTY_STRING;
+        String plotSynopsis = EMPTY_STRING;
+        double userRating = 0;
+        String releaseDate = EMPTY_STRING;
+        int voteCount = 0;
+        double popularity = 0;
+        String originalLanguage = EMPTY_STRING;
+        boolean adult = false;
+        int runtime = MovieDetails.UNKNOWN_RUNTIME;
+        List<MovieDetails.Genre> genres = new ArrayList<>();
+        List<MovieDetails.Video> videos = new ArrayList<>();
+        List<MovieDetails.Review> reviews = new ArrayList<>();
+        String localizedTitle = EMPTY_STRING;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case ID:
+                    id = in.nextInt();
+                    break;
+                case ORIGINAL_TITLE:
+                    title = in.nextString();
+                    break;
+                case TITLE:
+                    localizedTitle = in.nextString();
+                    break;
+                case POSTER_PATH:
+                    posterPath = in.nextString();
+                    break;
+                case OVERVIEW:
+                    plotSynopsis = in.nextString();
+                    break;
+                case VOTE_AVERAGE:
+                    userRating = in.nextDouble();
+                    break;
+                case RELEASE_DATE:
+                    releaseDate = in.nextString();
+                    break;
+                case VOTE_COUNT:
+                    voteCount = in.nextInt();
+                    break;
+                case POPULARITY:
+                    popularity = in.nextDouble();
+                    break;
+                case ORIGINAL_LANGUAGE:
+                    originalLanguage = in.nextString();
+                    break;
+                case ADULT:
+                    adult = in.nextBoolean();
+                    break;
+                case RUNTIME:
+                    runtime = in.nextInt();
+                    break;
+                case GENRES:
+                    readGenres(in, genres);
+                    break;
+                case VIDEOS:
+                    readResults(in, videos, null);
+                    break;
+                case REVIEWS:
+                    readResults(in, null, reviews);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        int[] genreIds = new int[genres.size()];
+        for (int i = 0; i < genreIds.length; i++) {
+            genreIds[i] = genres.get(i).getId();
+        }
+        Movie movie = new Movie(id, title, posterPath, plotSynopsis, userRating, releaseDate,
+                voteCount, popularity, originalLanguage, adult, genreIds, localizedTitle);
+        return new MovieDetails(movie, runtime, genres, videos, reviews);
+    }
+
+    private static void readGenres(JsonReader in, List<MovieDetails.Genre> genres)
+            throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            int id = 0;
+            String name = EMPTY_STRING;
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if (ID.equals(field)) {
+                    id = in.nextInt();
+                } else if (NAME.equals(field)) {
+                    name = in.nextString();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            genres.add(new MovieDetails.Genre(id, name));
+        }
+        in.endArray();
+    }
+
+    /**
+     * Reads the results of an appended response, either videos or reviews.
+     */
+    private static void readResults(JsonReader in, List<MovieDetails.Video> videos,
+                                    List<MovieDetails.Review> reviews) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (!RESULTS.equals(name) || in.peek() == JsonToken.NULL) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                if (videos != null) {
+                    videos.add(readVideo(in));
+                } else {
+                    reviews.add(readReview(in));
+                }
+            }
+            in.endArray();
+        }
+        in.endObject();
+    }
+
+    private static MovieDetails.Video readVideo(JsonReader in) throws IOException {
+        String key = EMPTY_STRING;
+        String name = EMPTY_STRING;
+        String site = EMPTY_STRING;
+        String type = EMPTY_STRING;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case KEY:
+                    key = in.nextString();
+                    break;
+                case NAME:
+                    name = in.nextString();
+                    break;
+                case SITE:
+                    site = in.nextString();
+                    break;
+                case TYPE:
+                    type = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new MovieDetails.Video(key, name, site, type);
+    }
+
+    private static MovieDetails.Review readReview(JsonReader in) throws IOException {
+        String author = EMPTY_STRING;
+        String content = EMPTY_STRING;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (AUTHOR.equals(field)) {
+                author = in.nextString();
+            } else if (CONTENT.equals(field)) {
+                content = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new MovieDetails.Review(author, content);
+    }
+
+    @Override
+    public void write(JsonWriter out, MovieDetails details) throws IOException {
+        if (details == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        MoviesPageTypeAdapter.writeMovieFields(out, details.getMovie());
+        out.name(RUNTIME).value(details.getRuntimeMinutes());
+
+        out.name(GENRES).beginArray();
+        for (MovieDetails.Genre genre : details.getGenres()) {
+            out.beginObject();
+            out.name(ID).value(genre.getId());
+            out.name(NAME).value(genre.getName());
+            out.endObject();
+        }
+        out.endArray();
+
+        out.name(VIDEOS).beginObject();
+        out.name(RESULTS).beginArray();
+        for (MovieDetails.Video video : details.getVideos()) {
+            out.beginObject();
+            out.name(KEY).value(video.getKey());
+            out.name(NAME).value(video.getName());
+            out.name(SITE).value(video.getSite());
+            out.name(TYPE).value(video.getType());
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+
+        out.name(REVIEWS).beginObject();
+        out.name(RESULTS).beginArray();
+        for (MovieDetails.Review review : details.getReviews()) {
+            out.beginObject();
+            out.name(AUTHOR).value(review.getAuthor());
+            out.name(CONTENT).value(review.getContent());
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+
+        out.endObject();
+    }
+}
@@ -16,11 +16,23 @@
 
 package com.packheng.popularmoviesstage1.TMDB;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.v4.app.ActivityOptionsCompat;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -28,7 +40,12 @@ import android.widget.TextView;
 
 import com.packheng.popularmoviesstage1.DetailActivity;
 import com.packheng.popularmoviesstage1.R;
-import com.squareup.picasso.Picasso;
+import com.packheng.popularmoviesstage1.images.DominantColor;
+import com.packheng.popularmoviesstage1.images.GridPosterLoader;
+import com.packheng.popularmoviesstage1.images.PosterColorStore;
+import com.packheng.popularmoviesstage1.images.PosterPrefetcher;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.RequestCreator;
 
 import java.util.List;
 
@@ -37,22 +54,74 @@ import butterknife.ButterKnife;
 
 /**
  * Provides binding from a data set to views that are displayed within a RecyclerView.
+ * The data set is replaced by submitting immutable lists: the differences with the current list
+ * are computed in the background and only the changed positions are notified.
+ * Until its poster is loaded, a cell is painted with the dominant color of the poster. The cells
+ * hold the bitmaps of the posters they show, so that the bitmaps are reused once recycled.
  */
-public class MoviesAdapter extends RecyclerView.Adapter<MoviesAdapter.MovieViewHolder> {
+public class MoviesAdapter extends RecyclerView.Adapter<MoviesAdapter.MovieViewHolder>
+        implements PosterPrefetcher.PosterUrlProvider {
 
-    public static final String MOVIE_POSITION_KEY = "movie_position_key";
+    public static final String MOVIE_ID_KEY = "movie_id_key";
+    // Url of the poster shown in the grid, whose bitmap is in the memory cache.
+    public static final String POSTER_URL_KEY = "poster_url_key";
+    // Size of the cells, which is part of the memory cache key of the poster.
+    public static final String POSTER_CELL_WIDTH_KEY = "poster_cell_width_key";
+    public static final String POSTER_CELL_HEIGHT_KEY = "poster_cell_height_key";
+    private static final String POSTER_TRANSITION_NAME_PREFIX = "poster_";
     private final Context context;
-    private List<Movie> movies;
+    private final GridPosterLoader posterLoader;
+    private final PosterColorStore posterColorStore;
+    private final AsyncListDiffer<Movie> differ;
+    private OnPosterPressedListener onPosterPressedListener;
 
-    public MoviesAdapter(Context context, List<Movie> movies) {
+    /**
+     * Notified as a poster is touched, before the press turns into a click or a scroll.
+     */
+    public interface OnPosterPressedListener {
+        void onPosterPressed(int movieId);
+
+        /**
+         * Called when the press turns into a scroll instead of a click.
+         */
+        void onPosterPressCancelled(int movieId);
+    }
+
+    private static final DiffUtil.ItemCallback<Movie> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Movie>() {
+                @Override
+                public boolean areItemsTheSame(Movie oldMovie, Movie newMovie) {
+                    return oldMovie.getId() == newMovie.getId();
+                }
+
+                @Override
+                public boolean areContentsTheSame(Movie oldMovie, Movie newMovie) {
+                    return oldMovie.equals(newMovie);
+                }
+            };
+
+    /**
+     * @param context the Activity context.
+     * @param posterLoader loads the posters of the grid.
+     */
+    public MoviesAdapter(Context context, GridPosterLoader posterLoader) {
         this.context = context;
-        this.movies = movies;
+        this.posterLoader = posterLoader;
+        this.posterColorStore = PosterColorStore.getInstance(context);
+        this.differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    public void setOnPosterPressedListener(OnPosterPressedListener listener) {
+        onPosterPressedListener = listener;
     }
 
     class MovieViewHolder extends RecyclerView.ViewHolder {
 
         @BindView(R.id.movie_item_iv) ImageView movieImageView;
         @BindView(R.id.movie_item_empty_view) TextView movieEmptyTextView;
+        // Bitmap of the poster shown, held from the pool.
+        private Bitmap posterBitmap;
 
         public MovieViewHolder(View itemView) {
             super(itemView);
@@ -62,12 +131,65 @@ public class MoviesAdapter extends RecyclerView.Adapter<MoviesAdapter.MovieViewH
                 @Override
                 public void onClick(View v) {
                     int position = getAdapterPosition();
+                    if (position == RecyclerView.NO_POSITION) {
+                        return;
+                    }
+                    Movie movie = differ.getCurrentList().get(position);
                     Intent intent = new Intent(context, DetailActivity.class);
-                    intent.putExtra(MOVIE_POSITION_KEY, position);
-                    context.startActivity(intent);
+                    intent.putExtra(MOVIE_ID_KEY, movie.getId());
+                    intent.putExtra(POSTER_URL_KEY, movie.getPosterUrl());
+                    intent.putExtra(POSTER_CELL_WIDTH_KEY, posterLoader.getCellWidth());
+                    intent.putExtra(POSTER_CELL_HEIGHT_KEY, posterLoader.getCellHeight());
+
+                    // The poster moves from the grid to the details.
+                    Bundle options = null;
+                    if (context instanceof Activity) {
+                        options = ActivityOptionsCompat.makeSceneTransitionAnimation(
+                                (Activity) context, movieImageView,
+                                getPosterTransitionName(movie.getId())).toBundle();
+                    }
+                    ContextCompat.startActivity(context, intent, options);
+                }
+            });
+
+            // The touch down comes a hundred milliseconds or so before the click.
+            movieImageView.setOnTouchListener(new View.OnTouchListener() {
+                @Override
+                public boolean onTouch(View v, MotionEvent event) {
+                    int position = getAdapterPosition();
+                    if (onPosterPressedListener == null || position == RecyclerView.NO_POSITION) {
+                        return false;
+                    }
+                    int movieId = differ.getCurrentList().get(position).getId();
+                    switch (event.getActionMasked()) {
+                        case MotionEvent.ACTION_DOWN:
+                            onPosterPressedListener.onPosterPressed(movieId);
+                            break;
+                        case MotionEvent.ACTION_CANCEL:
+                            onPosterPressedListener.onPosterPressCancelled(movieId);
+                            break;
+                    }
+                    // Let the click go on.
+                    return false;
                 }
             });
         }
+
+        void showPoster(Bitmap bitmap) {
+            if (bitmap == posterBitmap) {
+                return;
+            }
+            posterLoader.acquire(bitmap);
+            clearPoster();
+            posterBitmap = bitmap;
+        }
+
+        void clearPoster() {
+            if (posterBitmap != null) {
+                posterLoader.release(posterBitmap);
+                posterBitmap = null;
+            }
+        }
     }
 
     @NonNull
@@ -79,20 +201,107 @@ public class MoviesAdapter extends RecyclerView.Adapter<MoviesAdapter.MovieViewH
 
     @Override
     public void onBindViewHolder(@NonNull MovieViewHolder holder, int position) {
-        Movie movie = movies.get(position);
+        Movie movie = differ.getCurrentList().get(position);
         String posterUrl = movie.getPosterUrl();
         String title = movie.getTitle();
+        ViewCompat.setTransitionName(holder.movieImageView,
+                getPosterTransitionName(movie.getId()));
         if (!posterUrl.isEmpty()) {
             holder.movieEmptyTextView.setVisibility(View.GONE);
-            Picasso.with(context).load(posterUrl).into(holder.movieImageView);
+            RequestCreator request = posterLoader.load(posterUrl);
+            boolean hasColor = movie.getPosterColor() != DominantColor.NO_COLOR;
+            if (hasColor) {
+                request.placeholder(new ColorDrawable(movie.getPosterColor()));
+            }
+            // The color is extracted once, from the first poster loaded.
+            request.into(holder.movieImageView,
+                    new PosterCallback(holder, hasColor ? null : movie.getPosterPath()));
         } else {
+            // Don't leave the poster of a recycled cell behind the title.
+            unbindPoster(holder);
             holder.movieEmptyTextView.setVisibility(View.VISIBLE);
             holder.movieEmptyTextView.setText(title);
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull MovieViewHolder holder) {
+        unbindPoster(holder);
+    }
+
     @Override
     public int getItemCount() {
-        return movies.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
+    }
+
+    @Override
+    public String getPosterUrl(int position) {
+        return differ.getCurrentList().get(position).getPosterUrl();
+    }
+
+    /**
+     * @param movieId the TMDB id of a movie.
+     * @return the name of the shared element transition of the poster of the movie.
+     */
+    public static String getPosterTransitionName(int movieId) {
+        return POSTER_TRANSITION_NAME_PREFIX + movieId;
+    }
+
+    /**
+     * Replaces the movies shown by a new list. The list must not be modified afterwards.
+     *
+     * @param movies the new movies.
+     */
+    public void submitList(List<Movie> movies) {
+        differ.submitList(movies);
+    }
+
+    private void unbindPoster(MovieViewHolder holder) {
+        posterLoader.getPicasso().cancelRequest(holder.movieImageView);
+        holder.movieImageView.setImageDrawable(null);
+        holder.clearPoster();
+    }
+
+    /**
+     * Holds the bitmap of a poster once it is shown, and saves its color if it isn't known.
+     */
+    private class PosterCallback implements Callback {
+        private final MovieViewHolder holder;
+        private final String posterPathWithoutColor;
+
+        /**
+         * @param holder the cell the poster is loaded into.
+         * @param posterPathWithoutColor the poster path if its color isn't known, null otherwise.
+         */
+        PosterCallback(MovieViewHolder holder, String posterPathWithoutColor) {
+            this.holder = holder;
+            this.posterPathWithoutColor = posterPathWithoutColor;
+        }
+
+        @Override
+        public void onSuccess() {
+            Drawable drawable = holder.movieImageView.getDrawable();
+            if (!(drawable instanceof BitmapDrawable)) {
+                return;
+            }
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap == null) {
+                return;
+            }
+            holder.showPoster(bitmap);
+            if (posterPathWithoutColor != null) {
+                posterColorStore.extractColor(posterPathWithoutColor, bitmap);
+            }
+        }
+
+        @Override
+        public void onError() {
+            // Nothing shown.
+        }
     }
 }
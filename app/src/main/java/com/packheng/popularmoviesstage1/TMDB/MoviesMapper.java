@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import com.packheng.popularmoviesstage1.images.PosterColorStore;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.formatEpochDay;
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.parseEpochDay;
+
+/**
+ * Prepares decoded movies for display on a background executor: resolves the poster urls, looks
+ * up the poster colors and formats the release dates and user ratings, so that binding a movie
+ * only sets views.
+ * Results are delivered on the callback executor, usually the main thread.
+ */
+public class MoviesMapper {
+
+    /**
+     * Called on the callback executor with the prepared movies.
+     */
+    public interface OnMoviesMappedListener {
+        void onMoviesMapped(List<Movie> movies);
+    }
+
+    private final Executor mappingExecutor;
+    private final Executor callbackExecutor;
+    private final PosterSizeResolver posterSizeResolver;
+    private final PosterColorStore posterColorStore;
+
+    /**
+     * @param mappingExecutor executor the movies are prepared on. A single thread executor keeps
+     *                        the results in submission order.
+     * @param callbackExecutor executor the results are delivered on.
+     * @param posterSizeResolver resolves the urls of the grid posters.
+     * @param posterColorStore gives the colors of the posters.
+     */
+    public MoviesMapper(Executor mappingExecutor, Executor callbackExecutor,
+                        PosterSizeResolver posterSizeResolver,
+                        PosterColorStore posterColorStore) {
+        this.mappingExecutor = mappingExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.posterSizeResolver = posterSizeResolver;
+        this.posterColorStore = posterColorStore;
+    }
+
+    /**
+     * Prepares movies in the background.
+     *
+     * @param movies the decoded movies.
+     * @param listener called on the callback executor with an unmodifiable list of the prepared
+     *                 movies.
+     */
+    public void map(final List<Movie> movies, final OnMoviesMappedListener listener) {
+        mappingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Movie> mappedMovies = mapNow(movies);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onMoviesMapped(mappedMovies);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Prepares movies on the calling thread.
+     *
+     * @param movies the decoded movies.
+     * @return an unmodifiable list of the prepared movies.
+     */
+    public List<Movie> mapNow(List<Movie> movies) {
+        return mapNow(movies, true);
+    }
+
+    /**
+     * Prepares movies on the calling thread, keeping the poster colors they already have, e.g.
+     * when restored from a snapshot, rather than reading the colors from disk.
+     *
+     * @param movies the movies, with their poster colors.
+     * @return an unmodifiable list of the prepared movies.
+     */
+    public List<Movie> mapNowWithColors(List<Movie> movies) {
+        return mapNow(movies, false);
+    }
+
+    private List<Movie> mapNow(List<Movie> movies, boolean isColorLookedUp) {
+        List<Movie> mappedMovies = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            mappedMovies.add(mapMovie(movie, isColorLookedUp));
+        }
+        return Collections.unmodifiableList(mappedMovies);
+    }
+
+    private Movie mapMovie(Movie movie, boolean isColorLookedUp) {
+        String posterUrl = posterSizeResolver.getPosterUrl(movie.getPosterPath());
+        int posterColor = isColorLookedUp ? posterColorStore.getColor(movie.getPosterPath())
+                : movie.getPosterColor();
+
+        int releaseEpochDay = parseEpochDay(movie.getReleaseDate());
+        String releaseDateText = formatEpochDay(releaseEpochDay);
+
+        String userRatingText = String.format(Locale.getDefault(), "%1.1f",
+                movie.getUserRating());
+
+        return movie.withDisplayFields(posterUrl, posterColor, releaseEpochDay, releaseDateText,
+                userRatingText);
+    }
+}
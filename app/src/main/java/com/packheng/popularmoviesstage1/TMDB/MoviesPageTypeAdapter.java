@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams a page of a TMDB movies list straight into a {@link MoviesPage}, without reflection
+ * and without building the intermediate {@link TMDBResponse} and {@link TMDBResult} objects.
+ * The fields that aren't displayed are skipped. Pages are written back in the same JSON shape
+ * so that cached pages can be read by the same code.
+ */
+public class MoviesPageTypeAdapter extends TypeAdapter<MoviesPage> {
+    private static final String PAGE = "page";
+    private static final String TOTAL_RESULTS = "total_results";
+    private static final String TOTAL_PAGES = "total_pages";
+    private static final String RESULTS = "results";
+
+    // Fields of a movie, shared with MovieDetailsTypeAdapter.
+    static final String ID = "id";
+    static final String ORIGINAL_TITLE = "original_title";
+    static final String TITLE = "title";
+    static final String POSTER_PATH = "poster_path";
+    static final String OVERVIEW = "overview";
+    static final String VOTE_AVERAGE = "vote_average";
+    static final String RELEASE_DATE = "release_date";
+    static final String VOTE_COUNT = "vote_count";
+    static final String POPULARITY = "popularity";
+    static final String ORIGINAL_LANGUAGE = "original_language";
+    static final String ADULT = "adult";
+    private static final String GENRE_IDS = "genre_ids";
+
+    static final String EMPTY_STRING = "";
+
+    /**
+     * @return a {@link Gson} instance decoding {@link MoviesPage} with this adapter, and
+     * {@link MovieDetails} with {@link MovieDetailsTypeAdapter}.
+     */
+    public static Gson createGson() {
+        return new GsonBuilder()
+                .registerTypeAdapter(MoviesPage.class, new MoviesPageTypeAdapter())
+                .registerTypeAdapter(MovieDetails.class, new MovieDetailsTypeAdapter())
+                .create();
+    }
+
+    @Override
+    public MoviesPage read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        MoviesPage moviesPage = new MoviesPage();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case PAGE:
+                    moviesPage.setPage(in.nextInt());
+                    break;
+                case TOTAL_RESULTS:
+                    moviesPage.setTotalResults(in.nextInt());
+                    break;
+                case TOTAL_PAGES:
+                    moviesPage.setTotalPages(in.nextInt());
+                    break;
+                case RESULTS:
+                    moviesPage.setMovies(readMovies(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return moviesPage;
+    }
+
+    private static List<Movie> readMovies(JsonReader in) throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            movies.add(readMovie(in));
+        }
+        in.endArray();
+        return movies;
+    }
+
+    private static Movie readMovie(JsonReader in) throws IOException {
+        int id = 0;
+        String title = EMPTY_STRING;
+        String posterPath = EMPTY_STRING;
+        String plotSynopsis = EMPTY_STRING;
+        double userRating = 0;
+        String releaseDate = EMPTY_STRING;
+        int voteCount = 0;
+        double popularity = 0;
+        String originalLanguage = EMPTY_STRING;
+        boolean adult = false;
+        int[] genreIds = new int[0];
+        String localizedTitle = EMPTY_STRING;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case ID:
+                    id = in.nextInt();
+                    break;
+                case ORIGINAL_TITLE:
+                    title = in.nextString();
+                    break;
+                case TITLE:
+                    localizedTitle = in.nextString();
+                    break;
+                case POSTER_PATH:
+                    posterPath = in.nextString();
+                    break;
+                case OVERVIEW:
+                    plotSynopsis = in.nextString();
+                    break;
+                case VOTE_AVERAGE:
+                    userRating = in.nextDouble();
+                    break;
+                case RELEASE_DATE:
+                    releaseDate = in.nextString();
+                    break;
+                case VOTE_COUNT:
+                    voteCount = in.nextInt();
+                    break;
+                case POPULARITY:
+                    popularity = in.nextDouble();
+                    break;
+                case ORIGINAL_LANGUAGE:
+                    originalLanguage = in.nextString();
+                    break;
+                case ADULT:
+                    adult = in.nextBoolean();
+                    break;
+                case GENRE_IDS:
+                    genreIds = readInts(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Movie(id, title, posterPath, plotSynopsis, userRating, releaseDate, voteCount,
+                popularity, originalLanguage, adult, genreIds, localizedTitle);
+    }
+
+    private static int[] readInts(JsonReader in) throws IOException {
+        int[] values = new int[4];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            values[count++] = in.nextInt();
+        }
+        in.endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    @Override
+    public void write(JsonWriter out, MoviesPage moviesPage) throws IOException {
+        if (moviesPage == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name(PAGE).value(moviesPage.getPage());
+        out.name(TOTAL_RESULTS).value(moviesPage.getTotalResults());
+        out.name(TOTAL_PAGES).value(moviesPage.getTotalPages());
+        out.name(RESULTS).beginArray();
+        for (Movie movie : moviesPage.getMovies()) {
+            out.beginObject();
+            writeMovieFields(out, movie);
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    /**
+     * Writes the fields of a movie read by this adapter, in the current object.
+     */
+    static void writeMovieFields(JsonWriter out, Movie movie) throws IOException {
+        out.name(ID).value(movie.getId());
+        out.name(ORIGINAL_TITLE).value(movie.getTitle());
+        out.name(TITLE).value(movie.getLocalizedTitle());
+        out.name(POSTER_PATH).value(movie.getPosterPath());
+        out.name(OVERVIEW).value(movie.getPlotSynopsis());
+        out.name(VOTE_AVERAGE).value(movie.getUserRating());
+        out.name(RELEASE_DATE).value(movie.getReleaseDate());
+        out.name(VOTE_COUNT).value(movie.getVoteCount());
+        out.name(POPULARITY).value(movie.getPopularity());
+        out.name(ORIGINAL_LANGUAGE).value(movie.getOriginalLanguage());
+        out.name(ADULT).value(movie.isAdult());
+        out.name(GENRE_IDS).beginArray();
+        for (int genreId : movie.getGenreIds()) {
+            out.value(genreId);
+        }
+        out.endArray();
+    }
+}
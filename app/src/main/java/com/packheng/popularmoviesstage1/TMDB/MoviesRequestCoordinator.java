@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Issues the requests for the pages of the TMDB movies lists.
+ * <p>
+ * A request for a page that is already being loaded (same endpoint and page) doesn't create a
+ * new call: the listener is added to the call in flight. Cancelled requests never notify their
+ * listeners, so a superseded response can't overwrite a newer one.
+ */
+public class MoviesRequestCoordinator {
+
+    /**
+     * Notified with the result of a request.
+     */
+    public interface OnPageListener {
+        void onPageLoaded(MoviesPage moviesPage);
+
+        void onPageFailed();
+    }
+
+    /**
+     * Notified once per page fetched, however many listeners requested it.
+     */
+    public interface OnPageFetchedListener {
+        void onPageFetched(String endpoint, int page, MoviesPage moviesPage);
+    }
+
+    private final TMDBEndpointInterface apiService;
+    private final String apiKey;
+    private OnPageFetchedListener onPageFetchedListener;
+    // Requests in flight, by endpoint and page.
+    private final Map<String, InFlightRequest> inFlightRequests = new HashMap<>();
+
+    private static class InFlightRequest {
+        final String endpoint;
+        final Call<MoviesPage> call;
+        final List<OnPageListener> listeners = new ArrayList<>();
+
+        InFlightRequest(String endpoint, Call<MoviesPage> call) {
+            this.endpoint = endpoint;
+            this.call = call;
+        }
+    }
+
+    /**
+     * @param apiService the TMDB service.
+     * @param apiKey the TMDB API key.
+     */
+    public MoviesRequestCoordinator(TMDBEndpointInterface apiService, String apiKey) {
+        this.apiService = apiService;
+        this.apiKey = apiKey;
+    }
+
+    /**
+     * @param listener notified of every page fetched, before the listeners of the request, e.g.
+     *                 to save it.
+     */
+    public synchronized void setOnPageFetchedListener(OnPageFetchedListener listener) {
+        onPageFetchedListener = listener;
+    }
+
+    /**
+     * Requests a page of a movies list, joining the request in flight for the same page if any.
+     *
+     * @param endpoint {@link TMDBEndpointInterface#MOST_POPULAR_ENDPOINT} or
+     *                 {@link TMDBEndpointInterface#TOP_RATED_ENDPOINT}.
+     * @param page the page to request.
+     * @param listener notified with the result, on the Retrofit callback thread.
+     */
+    public synchronized void request(final String endpoint, final int page,
+                                     OnPageListener listener) {
+        final String key = endpoint + "?page=" + page;
+        InFlightRequest inFlightRequest = inFlightRequests.get(key);
+        if (inFlightRequest != null) {
+            inFlightRequest.listeners.add(listener);
+            return;
+        }
+
+        final InFlightRequest request = new InFlightRequest(endpoint, createCall(endpoint, page));
+        request.listeners.add(listener);
+        inFlightRequests.put(key, request);
+
+        request.call.enqueue(new Callback<MoviesPage>() {
+            @Override
+            public void onResponse(Call<MoviesPage> call, Response<MoviesPage> response) {
+                List<OnPageListener> listeners = complete(key, request);
+                MoviesPage moviesPage = response.body();
+                OnPageFetchedListener fetchedListener = getOnPageFetchedListener();
+                if (moviesPage != null && !listeners.isEmpty() && fetchedListener != null) {
+                    fetchedListener.onPageFetched(endpoint, page, moviesPage);
+                }
+                for (OnPageListener listener : listeners) {
+                    if (moviesPage != null) {
+                        listener.onPageLoaded(moviesPage);
+                    } else {
+                        listener.onPageFailed();
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Call<MoviesPage> call, Throwable t) {
+                for (OnPageListener listener : complete(key, request)) {
+                    listener.onPageFailed();
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the requests for the given lists, e.g. those a destroyed screen started, while the
+     * requests for the other lists go on.
+     *
+     * @param endpoints the endpoints of the lists whose requests are cancelled.
+     * @return the listeners of the cancelled requests, which won't be notified.
+     */
+    public synchronized List<OnPageListener> cancelAll(Collection<String> endpoints) {
+        List<OnPageListener> listeners = new ArrayList<>();
+        Iterator<InFlightRequest> iterator = inFlightRequests.values().iterator();
+        while (iterator.hasNext()) {
+            InFlightRequest request = iterator.next();
+            if (endpoints.contains(request.endpoint)) {
+                request.call.cancel();
+                listeners.addAll(request.listeners);
+                iterator.remove();
+            }
+        }
+        return listeners;
+    }
+
+    /**
+     * @return the number of requests in flight.
+     */
+    public synchronized int getInFlightCount() {
+        return inFlightRequests.size();
+    }
+
+    private synchronized OnPageFetchedListener getOnPageFetchedListener() {
+        return onPageFetchedListener;
+    }
+
+    /**
+     * Removes a completed request.
+     *
+     * @return the listeners to notify, none if the request was cancelled meanwhile.
+     */
+    private synchronized List<OnPageListener> complete(String key, InFlightRequest request) {
+        if (inFlightRequests.get(key) != request) {
+            return new ArrayList<>();
+        }
+        inFlightRequests.remove(key);
+        return request.listeners;
+    }
+
+    private Call<MoviesPage> createCall(String endpoint, int page) {
+        if (TMDBEndpointInterface.TOP_RATED_ENDPOINT.equals(endpoint)) {
+            return apiService.topRatedMovies(apiKey, page);
+        } else {
+            return apiService.popularMovies(apiKey, page);
+        }
+    }
+}
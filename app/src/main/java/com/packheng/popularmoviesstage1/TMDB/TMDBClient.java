@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.packheng.popularmoviesstage1.utils.NetworkUtils.isNetworkConnected;
+
+/**
+ * Application wide HTTP client for TMDB, created once instead of for every Activity.
+ * <p>
+ * Responses are kept in a disk HTTP cache, so that repeated requests are either served from the
+ * cache or revalidated with a conditional request (ETag / Last-Modified) answered by a 304.
+ * When there's no network, requests are answered from the cache only. OkHttp transparently asks
+ * for and decompresses gzip responses.
+ */
+public class TMDBClient {
+    private static final String TMDB_BASE_URL = "https://api.themoviedb.org/3/";
+
+    private static final String HTTP_CACHE_DIR_NAME = "http_cache";
+    private static final long HTTP_CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long READ_TIMEOUT_SECONDS = 20;
+    private static final long WRITE_TIMEOUT_SECONDS = 20;
+
+    // TMDB and its image CDN are only a couple of hosts.
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    // Freshness given to responses without caching headers.
+    private static final int DEFAULT_MAX_AGE_SECONDS = 60;
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    private static TMDBClient instance;
+
+    private final OkHttpClient okHttpClient;
+    private final TMDBEndpointInterface apiService;
+
+    private TMDBClient(final Context context) {
+        okHttpClient = new OkHttpClient.Builder()
+                .cache(new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR_NAME),
+                        HTTP_CACHE_SIZE_BYTES))
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                        TimeUnit.MINUTES))
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(new OfflineCacheInterceptor(context))
+                .addNetworkInterceptor(new DefaultCacheControlInterceptor())
+                .build();
+
+        apiService = createApiService(okHttpClient);
+    }
+
+    public static synchronized TMDBClient getInstance(Context context) {
+        if (instance == null) {
+            instance = new TMDBClient(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public TMDBEndpointInterface getApiService() {
+        return apiService;
+    }
+
+    /**
+     * Creates a service using another client, e.g. one derived from {@link #getOkHttpClient()}
+     * with additional interceptors.
+     *
+     * @param client the client of the service.
+     * @return a {@link TMDBEndpointInterface}.
+     */
+    public TMDBEndpointInterface createApiService(OkHttpClient client) {
+        // Create the Retrofit instance and constructs a service leveraging TMBDEndpointInterface.
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(TMDB_BASE_URL)
+                .client(client)
+                .addConverterFactory(
+                        GsonConverterFactory.create(MoviesPageTypeAdapter.createGson()))
+                .build();
+        return retrofit.create(TMDBEndpointInterface.class);
+    }
+
+    /**
+     * @return the {@link OkHttpClient}, whose connection pool and threads can be shared by
+     * other clients with {@link OkHttpClient#newBuilder()}.
+     */
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    /**
+     * Only looks in the cache, however stale, when there's no network.
+     */
+    private static class OfflineCacheInterceptor implements Interceptor {
+        private final Context context;
+
+        OfflineCacheInterceptor(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (!isNetworkConnected(context)) {
+                request = request.newBuilder()
+                        .cacheControl(CacheControl.FORCE_CACHE)
+                        .build();
+            }
+            return chain.proceed(request);
+        }
+    }
+
+    /**
+     * Makes responses without caching headers cacheable for a short while.
+     */
+    private static class DefaultCacheControlInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (response.isSuccessful() && response.header(CACHE_CONTROL) == null) {
+                return response.newBuilder()
+                        .header(CACHE_CONTROL, "public, max-age=" + DEFAULT_MAX_AGE_SECONDS)
+                        .build();
+            }
+            return response;
+        }
+    }
+}
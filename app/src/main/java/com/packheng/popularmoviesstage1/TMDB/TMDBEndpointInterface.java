@@ -18,6 +18,7 @@ package com.packheng.popularmoviesstage1.TMDB;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Path;
 import retrofit2.http.Query;
 
 /**
@@ -26,11 +27,30 @@ import retrofit2.http.Query;
 public interface TMDBEndpointInterface {
     final String MOST_POPULAR_ENDPOINT = "movie/popular";
     final String TOP_RATED_ENDPOINT = "movie/top_rated";
+    final String SEARCH_ENDPOINT = "search/movie";
+    final String GENRES_ENDPOINT = "genre/movie/list";
     final String API_KEY = "api_key";
+    final String PAGE = "page";
+    final String QUERY = "query";
+    final String MOVIE_ID = "movie_id";
+    final String APPEND_TO_RESPONSE = "append_to_response";
+    // Responses appended to the details of a movie, so that a single request is needed.
+    final String DETAILS_APPENDED_RESPONSES = "videos,reviews";
 
     @GET(MOST_POPULAR_ENDPOINT)
-    Call<TMDBResponse> popularMovies(@Query(API_KEY) String api_key);
+    Call<MoviesPage> popularMovies(@Query(API_KEY) String api_key, @Query(PAGE) int page);
 
     @GET(TOP_RATED_ENDPOINT)
-    Call<TMDBResponse> topRatedMovies(@Query(API_KEY) String api_key);
+    Call<MoviesPage> topRatedMovies(@Query(API_KEY) String api_key, @Query(PAGE) int page);
+
+    @GET(SEARCH_ENDPOINT)
+    Call<MoviesPage> searchMovies(@Query(API_KEY) String api_key, @Query(QUERY) String query,
+                                  @Query(PAGE) int page);
+
+    @GET(GENRES_ENDPOINT)
+    Call<GenreList> movieGenres(@Query(API_KEY) String api_key);
+
+    @GET("movie/{" + MOVIE_ID + "}")
+    Call<MovieDetails> movieDetails(@Path(MOVIE_ID) int movieId, @Query(API_KEY) String api_key,
+                                    @Query(APPEND_TO_RESPONSE) String appendToResponse);
 }
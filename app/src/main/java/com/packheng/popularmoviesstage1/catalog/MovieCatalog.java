@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.catalog;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.utils.DateToStringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cached movies laid out in columns of primitives, one row per movie, so that they can be
+ * filtered and sorted locally on any combination of keys without allocating an object per
+ * comparison: sorting 10,000 movies takes a few milliseconds.
+ * <p>
+ * Movies are added incrementally; a movie added again replaces its row. Queries should run in
+ * the background. Thread safe.
+ */
+public class MovieCatalog {
+    private static final int INITIAL_CAPACITY = 64;
+    // Runs sorted by insertion rather than merged.
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int NO_LANGUAGE = -1;
+
+    private int size;
+    private Movie[] movies = new Movie[INITIAL_CAPACITY];
+    // Sort columns, as floats so that any of them can be compared the same way.
+    private float[] popularities = new float[INITIAL_CAPACITY];
+    private float[] voteAverages = new float[INITIAL_CAPACITY];
+    private float[] voteCounts = new float[INITIAL_CAPACITY];
+    private float[] releaseDays = new float[INITIAL_CAPACITY];
+    // Filter columns. Languages are numbered in the order they are met, and the genres of a
+    // movie are a bitset of the genres also numbered in the order they are met.
+    private int[] languages = new int[INITIAL_CAPACITY];
+    private long[] genres = new long[INITIAL_CAPACITY];
+    private boolean[] adults = new boolean[INITIAL_CAPACITY];
+
+    private final Map<String, Integer> languageNumbers = new HashMap<>();
+    private final Map<Integer, Long> genreBits = new HashMap<>();
+    private final Map<Integer, Integer> rowsById = new HashMap<>();
+
+    /**
+     * Adds movies to the catalog, or updates them if they are already in it.
+     *
+     * @param newMovies the movies.
+     */
+    public synchronized void addAll(Collection<Movie> newMovies) {
+        for (Movie movie : newMovies) {
+            Integer row = rowsById.get(movie.getId());
+            if (row == null) {
+                if (size == movies.length) {
+                    grow();
+                }
+                row = size++;
+                rowsById.put(movie.getId(), row);
+            }
+            setRow(row, movie);
+        }
+    }
+
+    /**
+     * Filters and sorts the movies. Movies equal on all the sort keys keep the order they were
+     * first added in.
+     *
+     * @param query the filters and the sort keys.
+     * @param limit the maximum number of movies returned.
+     * @return the movies, in order.
+     */
+    public synchronized List<Movie> query(MovieQuery query, int limit) {
+        int[] rows = filter(query);
+        sort(rows, sortKeysOf(query), descendingOf(query));
+
+        int count = Math.min(limit, rows.length);
+        List<Movie> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(movies[rows[i]]);
+        }
+        return results;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void setRow(int row, Movie movie) {
+        movies[row] = movie;
+        popularities[row] = (float) movie.getPopularity();
+        voteAverages[row] = (float) movie.getUserRating();
+        voteCounts[row] = movie.getVoteCount();
+        int releaseDay = DateToStringUtils.parseEpochDay(movie.getReleaseDate());
+        // Unknown release dates sort as the oldest.
+        releaseDays[row] = releaseDay == DateToStringUtils.INVALID_DATE
+                ? Float.NEGATIVE_INFINITY : releaseDay;
+        languages[row] = languageNumberOf(movie.getOriginalLanguage(), true);
+        genres[row] = genreMaskOf(movie.getGenreIds(), true);
+        adults[row] = movie.isAdult();
+    }
+
+    private int[] filter(MovieQuery query) {
+        int language = query.getLanguage() == null ? NO_LANGUAGE
+                : languageNumberOf(query.getLanguage(), false);
+        if (query.getLanguage() != null && language == NO_LANGUAGE) {
+            // No movie in that language.
+            return new int[0];
+        }
+        long genreMask = genreMaskOf(query.getGenreIds(), false);
+        if (query.getGenreIds().length > 0 && genreMask == 0) {
+            // No movie of those genres.
+            return new int[0];
+        }
+        float minVoteCount = query.getMinVoteCount();
+        float minVoteAverage = (float) query.getMinVoteAverage();
+        boolean includeAdult = query.isIncludeAdult();
+
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (voteCounts[row] >= minVoteCount
+                    && voteAverages[row] >= minVoteAverage
+                    && (language == NO_LANGUAGE || languages[row] == language)
+                    && (genreMask == 0 || (genres[row] & genreMask) != 0)
+                    && (includeAdult || !adults[row])) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private float[][] sortKeysOf(MovieQuery query) {
+        float[][] keys = new float[query.getSortKeyCount()][];
+        for (int i = 0; i < keys.length; i++) {
+            switch (query.getSortColumn(i)) {
+                case POPULARITY:
+                    keys[i] = popularities;
+                    break;
+                case VOTE_AVERAGE:
+                    keys[i] = voteAverages;
+                    break;
+                case VOTE_COUNT:
+                    keys[i] = voteCounts;
+                    break;
+                case RELEASE_DATE:
+                    keys[i] = releaseDays;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column "
+                            + query.getSortColumn(i));
+            }
+        }
+        return keys;
+    }
+
+    private static boolean[] descendingOf(MovieQuery query) {
+        boolean[] descending = new boolean[query.getSortKeyCount()];
+        for (int i = 0; i < descending.length; i++) {
+            descending[i] = query.isDescending(i);
+        }
+        return descending;
+    }
+
+    /**
+     * Sorts rows on the keys with a stable merge sort, ties keeping the increasing row order.
+     */
+    static void sort(int[] rows, float[][] keys, boolean[] descending) {
+        if (keys.length == 0 || rows.length < 2) {
+            return;
+        }
+        int[] buffer = rows.clone();
+        mergeSort(buffer, rows, 0, rows.length, keys, descending);
+    }
+
+    // Sorts src[from, to) into dest; both hold the same rows on entry.
+    private static void mergeSort(int[] src, int[] dest, int from, int to, float[][] keys,
+                                  boolean[] descending) {
+        int length = to - from;
+        if (length <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = dest[i];
+                int j = i - 1;
+                while (j >= from && compare(dest[j], row, keys, descending) > 0) {
+                    dest[j + 1] = dest[j];
+                    j--;
+                }
+                dest[j + 1] = row;
+            }
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(dest, src, from, middle, keys, descending);
+        mergeSort(dest, src, middle, to, keys, descending);
+
+        if (compare(src[middle - 1], src[middle], keys, descending) <= 0) {
+            System.arraycopy(src, from, dest, from, length);
+            return;
+        }
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to
+                    || (left < middle && compare(src[left], src[right], keys, descending) <= 0)) {
+                dest[i] = src[left++];
+            } else {
+                dest[i] = src[right++];
+            }
+        }
+    }
+
+    private static int compare(int rowA, int rowB, float[][] keys, boolean[] descending) {
+        for (int i = 0; i < keys.length; i++) {
+            float a = keys[i][rowA];
+            float b = keys[i][rowB];
+            if (a != b) {
+                return (a < b) != descending[i] ? -1 : 1;
+            }
+        }
+        return rowA < rowB ? -1 : (rowA == rowB ? 0 : 1);
+    }
+
+    private int languageNumberOf(String language, boolean add) {
+        if (language == null || language.isEmpty()) {
+            return NO_LANGUAGE;
+        }
+        Integer number = languageNumbers.get(language);
+        if (number == null) {
+            if (!add) {
+                return NO_LANGUAGE;
+            }
+            number = languageNumbers.size();
+            languageNumbers.put(language, number);
+        }
+        return number;
+    }
+
+    private long genreMaskOf(int[] genreIds, boolean add) {
+        long mask = 0;
+        for (int genreId : genreIds) {
+            Long bit = genreBits.get(genreId);
+            if (bit == null) {
+                // TMDB has fewer genres than bits in a long, any others can't be filtered on.
+                if (!add || genreBits.size() == Long.SIZE) {
+                    continue;
+                }
+                bit = 1L << genreBits.size();
+                genreBits.put(genreId, bit);
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private void grow() {
+        int capacity = 2 * movies.length;
+        movies = Arrays.copyOf(movies, capacity);
+        popularities = Arrays.copyOf(popularities, capacity);
+        voteAverages = Arrays.copyOf(voteAverages, capacity);
+        voteCounts = Arrays.copyOf(voteCounts, capacity);
+        releaseDays = Arrays.copyOf(releaseDays, capacity);
+        languages = Arrays.copyOf(languages, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        adults = Arrays.copyOf(adults, capacity);
+    }
+}
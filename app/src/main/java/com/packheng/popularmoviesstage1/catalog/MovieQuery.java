@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.catalog;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A query of the {@link MovieCatalog}: the filters the movies must pass and the keys they are
+ * sorted by, the first key first. Instances are immutable and built with a {@link Builder}.
+ */
+public class MovieQuery {
+
+    /**
+     * The columns the movies can be sorted by.
+     */
+    public enum SortColumn {
+        POPULARITY,
+        VOTE_AVERAGE,
+        VOTE_COUNT,
+        RELEASE_DATE
+    }
+
+    private final SortColumn[] sortColumns;
+    private final boolean[] descending;
+    private final int minVoteCount;
+    private final double minVoteAverage;
+    private final String language;
+    private final int[] genreIds;
+    private final boolean includeAdult;
+
+    private MovieQuery(Builder builder) {
+        int keyCount = builder.sortColumns.size();
+        sortColumns = builder.sortColumns.toArray(new SortColumn[keyCount]);
+        descending = new boolean[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            descending[i] = builder.descending.get(i);
+        }
+        minVoteCount = builder.minVoteCount;
+        minVoteAverage = builder.minVoteAverage;
+        language = builder.language;
+        genreIds = builder.genreIds;
+        includeAdult = builder.includeAdult;
+    }
+
+    int getSortKeyCount() {
+        return sortColumns.length;
+    }
+
+    SortColumn getSortColumn(int key) {
+        return sortColumns[key];
+    }
+
+    boolean isDescending(int key) {
+        return descending[key];
+    }
+
+    public int getMinVoteCount() {
+        return minVoteCount;
+    }
+
+    public double getMinVoteAverage() {
+        return minVoteAverage;
+    }
+
+    /**
+     * @return the ISO 639-1 code of the original language of the movies, or null for any.
+     */
+    @Nullable
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * @return the TMDB ids of the genres the movies must have one of, or none for any. The array
+     * must not be modified.
+     */
+    public int[] getGenreIds() {
+        return genreIds;
+    }
+
+    public boolean isIncludeAdult() {
+        return includeAdult;
+    }
+
+    /**
+     * @return the sort keys and filters of the query as a string, the same for equal queries, e.g.
+     * to tell whether movies saved for a query are still the ones it matches.
+     */
+    public String getKey() {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < sortColumns.length; i++) {
+            key.append(sortColumns[i]).append(descending[i] ? '-' : '+').append(',');
+        }
+        key.append(";votes>=").append(minVoteCount)
+                .append(";average>=").append(minVoteAverage)
+                .append(";language=").append(language != null ? language : "")
+                .append(";genres=").append(Arrays.toString(genreIds))
+                .append(";adult=").append(includeAdult);
+        return key.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MovieQuery query = (MovieQuery) o;
+        return minVoteCount == query.minVoteCount
+                && Double.compare(query.minVoteAverage, minVoteAverage) == 0
+                && includeAdult == query.includeAdult
+                && Arrays.equals(sortColumns, query.sortColumns)
+                && Arrays.equals(descending, query.descending)
+                && Arrays.equals(genreIds, query.genreIds)
+                && (language == null ? query.language == null : language.equals(query.language));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(sortColumns);
+        result = 31 * result + Arrays.hashCode(descending);
+        result = 31 * result + minVoteCount;
+        result = 31 * result + (language != null ? language.hashCode() : 0);
+        result = 31 * result + Arrays.hashCode(genreIds);
+        return result;
+    }
+
+    /**
+     * Builds a {@link MovieQuery}. By default, all the movies but the adult ones are kept, in the
+     * order they were added to the catalog.
+     */
+    public static class Builder {
+        private final List<SortColumn> sortColumns = new ArrayList<>();
+        private final List<Boolean> descending = new ArrayList<>();
+        private int minVoteCount;
+        private double minVoteAverage;
+        private String language;
+        private int[] genreIds = new int[0];
+        private boolean includeAdult;
+
+        /**
+         * Adds a sort key, used for the movies equal on the previous keys.
+         *
+         * @param column the column.
+         * @param descending true to sort the highest values first.
+         * @return this builder.
+         */
+        public Builder sortBy(SortColumn column, boolean descending) {
+            sortColumns.add(column);
+            this.descending.add(descending);
+            return this;
+        }
+
+        public Builder minVoteCount(int minVoteCount) {
+            this.minVoteCount = minVoteCount;
+            return this;
+        }
+
+        public Builder minVoteAverage(double minVoteAverage) {
+            this.minVoteAverage = minVoteAverage;
+            return this;
+        }
+
+        /**
+         * @param language the ISO 639-1 code of the original language, or null for any.
+         * @return this builder.
+         */
+        public Builder language(@Nullable String language) {
+            this.language = language == null || language.isEmpty() ? null : language;
+            return this;
+        }
+
+        /**
+         * @param genreIds the TMDB ids of the genres the movies must have one of, or none for
+         * any.
+         * @return this builder.
+         */
+        public Builder genres(int... genreIds) {
+            this.genreIds = genreIds.clone();
+            return this;
+        }
+
+        public Builder includeAdult(boolean includeAdult) {
+            this.includeAdult = includeAdult;
+            return this;
+        }
+
+        public MovieQuery build() {
+            return new MovieQuery(this);
+        }
+    }
+}
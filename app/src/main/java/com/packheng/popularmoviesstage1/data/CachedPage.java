@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+
+/**
+ * A page of a TMDB movies list as stored in the {@link MoviesCache}, with the time it was saved.
+ */
+public class CachedPage {
+
+    @SerializedName("saved_at")
+    @Expose
+    private long savedAt;
+    @SerializedName("response")
+    @Expose
+    private MoviesPage response;
+
+    public CachedPage(long savedAt, MoviesPage response) {
+        this.savedAt = savedAt;
+        this.response = response;
+    }
+
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public MoviesPage getResponse() {
+        return response;
+    }
+
+    /**
+     * @param ttlMillis time to live of a cached page, in milliseconds.
+     * @return true if the page is older than its time to live and should be refreshed.
+     */
+    public boolean isStale(long ttlMillis) {
+        long age = System.currentTimeMillis() - savedAt;
+        return age < 0 || age > ttlMillis;
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import android.content.Context;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static com.packheng.popularmoviesstage1.data.IoUtils.closeQuietly;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeAtomically;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeJsonAtomically;
+
+/**
+ * Store of the favorite movies, by TMDB id, so that they can be shown without any request.
+ * <p>
+ * The favorites are saved with all the fields shown in the grid in a JSON file of the files
+ * directory, and their posters are pinned next to it, out of the image disk cache whose least
+ * recently used posters are evicted. The favorites are read once, in the background; changes
+ * are saved in the background too, and the listeners are told on the main thread once saved.
+ */
+public class FavoritesStore {
+    private static final String LOG_TAG = FavoritesStore.class.getSimpleName();
+
+    private static final String FILE_NAME = "favorites.json";
+    private static final String POSTERS_DIR_NAME = "favorite_posters";
+    private static final String POSTER_FILE_EXTENSION = ".jpg";
+    private static final String FILE_URL_PREFIX = "file://";
+    private static final String CHARSET = "UTF-8";
+    private static final int BUFFER_SIZE = 8192;
+
+    private static FavoritesStore instance;
+
+    /**
+     * Called on the main thread with the favorite movies, the last added first.
+     */
+    public interface OnFavoritesLoadedListener {
+        void onFavoritesLoaded(List<Movie> favorites);
+    }
+
+    /**
+     * Called on the main thread once a movie was added to or removed from the favorites.
+     */
+    public interface OnFavoritesChangedListener {
+        void onFavoritesChanged();
+    }
+
+    private final File file;
+    private final File postersDir;
+    private final Call.Factory posterClient;
+    private final Executor diskExecutor;
+    private final Executor mainThreadExecutor;
+    private final Gson gson = MoviesPageTypeAdapter.createGson();
+
+    // Favorites in the order they were added, and the ids of their pinned posters. Guarded by
+    // this, only modified on the disk thread.
+    private final Map<Integer, Movie> favorites = new LinkedHashMap<>();
+    private final Set<Integer> pinnedPosters = new HashSet<>();
+    private boolean isLoaded;
+    // Only used on the main thread.
+    private final List<OnFavoritesChangedListener> listeners = new ArrayList<>();
+
+    @VisibleForTesting
+    FavoritesStore(File dir, Call.Factory posterClient, AppExecutors executors) {
+        this.file = new File(dir, FILE_NAME);
+        this.postersDir = new File(dir, POSTERS_DIR_NAME);
+        this.posterClient = posterClient;
+        this.diskExecutor = executors.diskIO();
+        this.mainThreadExecutor = executors.mainThread();
+    }
+
+    public static synchronized FavoritesStore getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new FavoritesStore(appContext.getFilesDir(),
+                    ImagePipeline.getInstance(appContext).getOkHttpClient(),
+                    AppExecutors.getInstance());
+        }
+        return instance;
+    }
+
+    @MainThread
+    public void addOnFavoritesChangedListener(OnFavoritesChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    @MainThread
+    public void removeOnFavoritesChangedListener(OnFavoritesChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Loads the favorite movies, from disk the first time.
+     *
+     * @param listener called on the main thread with the favorites.
+     */
+    public void load(final OnFavoritesLoadedListener listener) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+                final List<Movie> loadedFavorites = getFavorites();
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onFavoritesLoaded(loadedFavorites);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the favorite movies loaded so far, the last added first.
+     */
+    public synchronized List<Movie> getFavorites() {
+        List<Movie> loadedFavorites = new ArrayList<>(favorites.values());
+        Collections.reverse(loadedFavorites);
+        return loadedFavorites;
+    }
+
+    /**
+     * @param movieId the TMDB id of a movie.
+     * @return the movie if it is a favorite, null otherwise or if the favorites weren't loaded.
+     */
+    @Nullable
+    public synchronized Movie getFavorite(int movieId) {
+        return favorites.get(movieId);
+    }
+
+    /**
+     * @param movieId the TMDB id of a movie.
+     * @return true if the movie is a favorite. False until the favorites are loaded.
+     */
+    public synchronized boolean isFavorite(int movieId) {
+        return favorites.containsKey(movieId);
+    }
+
+    /**
+     * @param movieId the TMDB id of a favorite movie.
+     * @return the url of the poster pinned on disk, empty if there's none.
+     */
+    public synchronized String getPinnedPosterUrl(int movieId) {
+        return pinnedPosters.contains(movieId)
+                ? FILE_URL_PREFIX + posterFileFor(movieId).getAbsolutePath() : "";
+    }
+
+    /**
+     * Adds a movie to the favorites and pins its poster, downloaded unless it is in the image
+     * disk cache already.
+     *
+     * @param movie the movie.
+     * @param posterUrl the url of the poster to pin, empty if there's none.
+     */
+    public void add(final Movie movie, final String posterUrl) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+                synchronized (FavoritesStore.this) {
+                    favorites.remove(movie.getId());
+                    favorites.put(movie.getId(), movie);
+                }
+                write();
+                notifyChanged();
+                if (!posterUrl.isEmpty()) {
+                    pinPoster(movie.getId(), posterUrl);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes a movie from the favorites, with its pinned poster.
+     *
+     * @param movieId the TMDB id of the movie.
+     */
+    public void remove(final int movieId) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ensureLoaded();
+                synchronized (FavoritesStore.this) {
+                    favorites.remove(movieId);
+                    pinnedPosters.remove(movieId);
+                }
+                write();
+                posterFileFor(movieId).delete();
+                notifyChanged();
+            }
+        });
+    }
+
+    private void notifyChanged() {
+        mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (OnFavoritesChangedListener listener : new ArrayList<>(listeners)) {
+                    listener.onFavoritesChanged();
+                }
+            }
+        });
+    }
+
+    @WorkerThread
+    private void ensureLoaded() {
+        synchronized (this) {
+            if (isLoaded) {
+                return;
+            }
+            isLoaded = true;
+        }
+        List<Movie> savedFavorites = read();
+        Set<Integer> savedPosters = new HashSet<>();
+        for (Movie movie : savedFavorites) {
+            if (posterFileFor(movie.getId()).exists()) {
+                savedPosters.add(movie.getId());
+            }
+        }
+        synchronized (this) {
+            for (Movie movie : savedFavorites) {
+                favorites.put(movie.getId(), movie);
+            }
+            pinnedPosters.addAll(savedPosters);
+        }
+    }
+
+    private List<Movie> read() {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+            MoviesPage page = gson.fromJson(reader, MoviesPage.class);
+            return page != null && page.getMovies() != null ? page.getMovies()
+                    : Collections.<Movie>emptyList();
+        } catch (IOException | JsonParseException e) {
+            // Not deleted: the favorites are written again on the next change.
+            Log.e(LOG_TAG, "Unable to read the favorites.", e);
+            return Collections.emptyList();
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void write() {
+        MoviesPage page = new MoviesPage();
+        synchronized (this) {
+            page.setMovies(new ArrayList<>(favorites.values()));
+        }
+        page.setPage(1);
+        page.setTotalPages(1);
+        page.setTotalResults(page.getMovies().size());
+
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the favorites directory.");
+            return;
+        }
+        try {
+            writeJsonAtomically(file, gson, page, MoviesPage.class);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to write the favorites.", e);
+        }
+    }
+
+    /**
+     * Downloads a poster, off the disk thread, and copies it to the posters directory.
+     */
+    private void pinPoster(final int movieId, final String posterUrl) {
+        Request request;
+        try {
+            request = new Request.Builder().url(posterUrl).build();
+        } catch (IllegalArgumentException e) {
+            Log.e(LOG_TAG, "Invalid poster url " + posterUrl, e);
+            return;
+        }
+        posterClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (savePoster(movieId, posterUrl, response)) {
+                    diskExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onPosterPinned(movieId);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.e(LOG_TAG, "Unable to download the poster " + posterUrl, e);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void onPosterPinned(int movieId) {
+        synchronized (this) {
+            if (favorites.containsKey(movieId)) {
+                pinnedPosters.add(movieId);
+            } else {
+                // Removed while the poster was downloaded.
+                posterFileFor(movieId).delete();
+                return;
+            }
+        }
+        notifyChanged();
+    }
+
+    /**
+     * @return true if the poster was saved.
+     */
+    private boolean savePoster(int movieId, String posterUrl, Response response) {
+        if (!postersDir.exists() && !postersDir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the posters directory.");
+            closeQuietly(response);
+            return false;
+        }
+
+        try {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                Log.e(LOG_TAG, "Unable to download the poster " + posterUrl);
+                return false;
+            }
+            final InputStream in = body.byteStream();
+            writeAtomically(posterFileFor(movieId), new IoUtils.ContentWriter() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, count);
+                    }
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to save the poster " + posterUrl, e);
+            return false;
+        } finally {
+            closeQuietly(response);
+        }
+    }
+
+    private File posterFileFor(int movieId) {
+        return new File(postersDir, movieId + POSTER_FILE_EXTENSION);
+    }
+}
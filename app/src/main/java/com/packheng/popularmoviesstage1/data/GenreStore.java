@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.packheng.popularmoviesstage1.BuildConfig;
+import com.packheng.popularmoviesstage1.TMDB.GenreList;
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.TMDB.TMDBClient;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.packheng.popularmoviesstage1.data.IoUtils.closeQuietly;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeJsonAtomically;
+
+/**
+ * Store of the TMDB genre list, which hardly ever changes: it is fetched once, kept in memory and
+ * in a JSON file, and only fetched again once a month. The stale list is still returned when the
+ * request fails. Results are delivered on the main thread.
+ */
+public class GenreStore {
+    private static final String LOG_TAG = GenreStore.class.getSimpleName();
+
+    /** Time after which the cached genres are refreshed from the network. */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static final String FILE_NAME = "genres.json";
+    private static final String CHARSET = "UTF-8";
+
+    private static GenreStore instance;
+
+    /**
+     * Called on the main thread with the genres, or null if they couldn't be loaded.
+     */
+    public interface OnGenresLoadedListener {
+        void onGenresLoaded(@Nullable GenreTable genres);
+    }
+
+    private final File file;
+    private final TMDBEndpointInterface apiService;
+    private final String apiKey;
+    private final long ttlMillis;
+    private final Executor diskExecutor;
+    private final Executor mainThreadExecutor;
+    private final Gson gson = MoviesPageTypeAdapter.createGson();
+
+    // Guarded by this.
+    private GenreTable genres;
+    private long savedAt;
+    private boolean isFileRead;
+    // Listeners of the load in progress, null if there's none. Guarded by this.
+    private List<OnGenresLoadedListener> listeners;
+
+    /**
+     * Genres as stored on disk, with the time they were fetched.
+     */
+    static class CachedGenres {
+        @SerializedName("saved_at")
+        final long savedAt;
+        @SerializedName("genres")
+        final List<MovieDetails.Genre> genres;
+
+        CachedGenres(long savedAt, List<MovieDetails.Genre> genres) {
+            this.savedAt = savedAt;
+            this.genres = genres;
+        }
+    }
+
+    @VisibleForTesting
+    GenreStore(File file, TMDBEndpointInterface apiService, String apiKey, long ttlMillis,
+               AppExecutors executors) {
+        this.file = file;
+        this.apiService = apiService;
+        this.apiKey = apiKey;
+        this.ttlMillis = ttlMillis;
+        this.diskExecutor = executors.diskIO();
+        this.mainThreadExecutor = executors.mainThread();
+    }
+
+    public static synchronized GenreStore getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new GenreStore(new File(appContext.getFilesDir(), FILE_NAME),
+                    TMDBClient.getInstance(appContext).getApiService(), BuildConfig.ApiKey,
+                    DEFAULT_TTL_MILLIS, AppExecutors.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * @return the genres loaded so far, possibly stale, or null if they weren't loaded yet.
+     */
+    @Nullable
+    public synchronized GenreTable getGenres() {
+        return genres;
+    }
+
+    /**
+     * Loads the genres, from memory, disk or TMDB.
+     *
+     * @param listener called on the main thread with the genres.
+     */
+    public void load(OnGenresLoadedListener listener) {
+        start(listener);
+    }
+
+    /**
+     * Loads the genres ahead of their use, e.g. as the app starts.
+     */
+    public void prefetch() {
+        start(null);
+    }
+
+    private void start(@Nullable OnGenresLoadedListener listener) {
+        synchronized (this) {
+            if (genres != null && !isStale()) {
+                if (listener != null) {
+                    deliver(genres, listener);
+                }
+                return;
+            }
+            if (listeners != null) {
+                if (listener != null) {
+                    listeners.add(listener);
+                }
+                return;
+            }
+            listeners = new ArrayList<>();
+            if (listener != null) {
+                listeners.add(listener);
+            }
+        }
+
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean isFresh;
+                synchronized (GenreStore.this) {
+                    if (!isFileRead) {
+                        isFileRead = true;
+                        read();
+                    }
+                    isFresh = genres != null && !isStale();
+                }
+                if (isFresh) {
+                    complete();
+                } else {
+                    fetch();
+                }
+            }
+        });
+    }
+
+    private void fetch() {
+        apiService.movieGenres(apiKey).enqueue(new Callback<GenreList>() {
+            @Override
+            public void onResponse(Call<GenreList> call, Response<GenreList> response) {
+                GenreList genreList = response.body();
+                if (genreList != null && !genreList.getGenres().isEmpty()) {
+                    final CachedGenres fetched = new CachedGenres(System.currentTimeMillis(),
+                            genreList.getGenres());
+                    synchronized (GenreStore.this) {
+                        genres = new GenreTable(fetched.genres);
+                        savedAt = fetched.savedAt;
+                    }
+                    diskExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            write(fetched);
+                        }
+                    });
+                }
+                complete();
+            }
+
+            @Override
+            public void onFailure(Call<GenreList> call, Throwable t) {
+                complete();
+            }
+        });
+    }
+
+    private void complete() {
+        List<OnGenresLoadedListener> loadListeners;
+        GenreTable loadedGenres;
+        synchronized (this) {
+            loadListeners = listeners;
+            listeners = null;
+            loadedGenres = genres;
+        }
+        for (OnGenresLoadedListener listener : loadListeners) {
+            deliver(loadedGenres, listener);
+        }
+    }
+
+    private void deliver(@Nullable final GenreTable loadedGenres,
+                         final OnGenresLoadedListener listener) {
+        mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onGenresLoaded(loadedGenres);
+            }
+        });
+    }
+
+    // Guarded by this.
+    private boolean isStale() {
+        long age = System.currentTimeMillis() - savedAt;
+        return age < 0 || age > ttlMillis;
+    }
+
+    // Guarded by this.
+    private void read() {
+        if (!file.exists()) {
+            return;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+            CachedGenres cached = gson.fromJson(reader, CachedGenres.class);
+            if (cached != null && cached.genres != null && genres == null) {
+                genres = new GenreTable(cached.genres);
+                savedAt = cached.savedAt;
+            }
+        } catch (IOException | JsonParseException e) {
+            Log.e(LOG_TAG, "Unable to read the cached genres.", e);
+            file.delete();
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void write(CachedGenres cached) {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the cache directory.");
+            return;
+        }
+
+        try {
+            writeJsonAtomically(file, gson, cached, CachedGenres.class);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to write the cached genres.", e);
+        }
+    }
+}
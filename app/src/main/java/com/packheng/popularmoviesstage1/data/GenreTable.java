@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The names of the TMDB genres by id, e.g. "Science Fiction" for 878. Instances are immutable.
+ */
+public class GenreTable {
+    // Ids in increasing order, and the name of each.
+    private final int[] ids;
+    private final String[] names;
+    private final List<MovieDetails.Genre> genresByName;
+
+    public GenreTable(List<MovieDetails.Genre> genres) {
+        List<MovieDetails.Genre> byId = new ArrayList<>(genres);
+        Collections.sort(byId, new Comparator<MovieDetails.Genre>() {
+            @Override
+            public int compare(MovieDetails.Genre a, MovieDetails.Genre b) {
+                return a.getId() < b.getId() ? -1 : (a.getId() == b.getId() ? 0 : 1);
+            }
+        });
+        ids = new int[byId.size()];
+        names = new String[byId.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = byId.get(i).getId();
+            names[i] = byId.get(i).getName();
+        }
+
+        List<MovieDetails.Genre> byName = new ArrayList<>(genres);
+        Collections.sort(byName, new Comparator<MovieDetails.Genre>() {
+            @Override
+            public int compare(MovieDetails.Genre a, MovieDetails.Genre b) {
+                return String.valueOf(a.getName())
+                        .compareToIgnoreCase(String.valueOf(b.getName()));
+            }
+        });
+        genresByName = Collections.unmodifiableList(byName);
+    }
+
+    /**
+     * @return the genres, sorted by name.
+     */
+    public List<MovieDetails.Genre> getGenres() {
+        return genresByName;
+    }
+
+    /**
+     * @param genreId the TMDB id of a genre.
+     * @return the name of the genre, or null if it isn't known.
+     */
+    @Nullable
+    public String nameOf(int genreId) {
+        int index = Arrays.binarySearch(ids, genreId);
+        return index >= 0 ? names[index] : null;
+    }
+
+    /**
+     * @param genreIds the TMDB ids of genres, e.g. of a movie.
+     * @return the names of the genres that are known, in the same order.
+     */
+    public List<String> namesOf(int[] genreIds) {
+        List<String> genreNames = new ArrayList<>(genreIds.length);
+        for (int genreId : genreIds) {
+            String name = nameOf(genreId);
+            if (name != null) {
+                genreNames.add(name);
+            }
+        }
+        return genreNames;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.utils.DateToStringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.packheng.popularmoviesstage1.data.IoUtils.closeQuietly;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeAtomically;
+
+/**
+ * The movies of the grid last shown, saved in a small binary file so that a cold start can show
+ * them before any other disk or network work, until the list is loaded.
+ * <p>
+ * The file starts with a magic number and a format version, followed by the key of the grid
+ * and, for each movie, its id, title, poster path, rating as a float, release date as an epoch
+ * day and poster color. It ends with a CRC32 of all the previous bytes. It is read in one go and
+ * written to a temporary file renamed once synced, so that a crash never leaves a partial
+ * snapshot behind. Snapshots that are corrupt, truncated, of another version or of another grid
+ * are ignored.
+ */
+public class GridSnapshot {
+    private static final String LOG_TAG = GridSnapshot.class.getSimpleName();
+
+    public static final String FILE_NAME = "grid_snapshot.bin";
+    /** Movies saved at most, a few screens of the grid. */
+    public static final int MAX_MOVIES = 60;
+
+    @VisibleForTesting
+    static final int MAGIC = 0x504d4753;
+    @VisibleForTesting
+    static final int VERSION = 1;
+    // Bigger files can't be snapshots: titles are short.
+    private static final int MAX_FILE_BYTES = 256 * 1024;
+    private static final int CRC_BYTES = 8;
+    private static final String EMPTY_STRING = "";
+
+    private final String key;
+    private final List<Movie> movies;
+
+    /**
+     * @param key identifies the grid, e.g. its sort order, so that a snapshot is only shown for
+     *            the same grid.
+     * @param movies the movies shown, in order. Only the first {@link #MAX_MOVIES} are saved.
+     */
+    public GridSnapshot(String key, List<Movie> movies) {
+        this.key = key;
+        this.movies = Collections.unmodifiableList(
+                new ArrayList<>(movies.subList(0, Math.min(movies.size(), MAX_MOVIES))));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the movies, with their poster colors but without their other display fields, nor
+     * their overview.
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Reads a snapshot. This is a single small read, meant to be done before the first frame.
+     *
+     * @param file the snapshot file.
+     * @param key identifies the grid about to be shown.
+     * @return the snapshot, or null if there's none, it can't be used or it was saved for another
+     * grid.
+     */
+    @Nullable
+    public static GridSnapshot read(File file, String key) {
+        long length = file.length();
+        if (length == 0 || length > MAX_FILE_BYTES) {
+            return null;
+        }
+
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            byte[] bytes = new byte[(int) length];
+            new DataInputStream(in).readFully(bytes);
+            GridSnapshot snapshot = decode(bytes);
+            // Kept on disk: it is replaced once the grid of the key is shown.
+            return snapshot.key.equals(key) ? snapshot : null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Ignoring the grid snapshot.", e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Writes a snapshot in place of the previous one. Touches the disk: not to be called on the
+     * main thread.
+     *
+     * @param file the snapshot file.
+     * @param snapshot the snapshot.
+     */
+    public static void write(File file, GridSnapshot snapshot) {
+        try {
+            final byte[] bytes = encode(snapshot);
+            writeAtomically(file, new IoUtils.ContentWriter() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write(bytes);
+                }
+            }, true);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to write the grid snapshot.", e);
+        }
+    }
+
+    @VisibleForTesting
+    static byte[] encode(GridSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(snapshot.key);
+        out.writeInt(snapshot.movies.size());
+        for (Movie movie : snapshot.movies) {
+            out.writeInt(movie.getId());
+            out.writeUTF(nonNull(movie.getTitle()));
+            out.writeUTF(nonNull(movie.getPosterPath()));
+            out.writeFloat((float) movie.getUserRating());
+            out.writeInt(DateToStringUtils.parseEpochDay(movie.getReleaseDate()));
+            out.writeInt(movie.getPosterColor());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @VisibleForTesting
+    static GridSnapshot decode(byte[] bytes) throws IOException {
+        if (bytes.length < CRC_BYTES) {
+            throw new IOException("Truncated snapshot");
+        }
+        int contentLength = bytes.length - CRC_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, contentLength);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.skipBytes(contentLength);
+        if (in.readLong() != crc.getValue()) {
+            throw new IOException("Corrupt snapshot");
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(bytes, 0, contentLength));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        String key = in.readUTF();
+        int count = in.readInt();
+        if (count < 0 || count > MAX_MOVIES) {
+            throw new IOException("Invalid movie count " + count);
+        }
+        List<Movie> movies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            String title = in.readUTF();
+            String posterPath = in.readUTF();
+            float userRating = in.readFloat();
+            int releaseEpochDay = in.readInt();
+            int posterColor = in.readInt();
+            Movie movie = new Movie(id, title, posterPath, EMPTY_STRING, userRating,
+                    DateToStringUtils.formatIsoDate(releaseEpochDay));
+            movies.add(movie.withDisplayFields(EMPTY_STRING, posterColor, releaseEpochDay,
+                    EMPTY_STRING, EMPTY_STRING));
+        }
+        if (in.available() != 0) {
+            throw new IOException("Trailing bytes in snapshot");
+        }
+        return new GridSnapshot(key, movies);
+    }
+
+    private static String nonNull(String s) {
+        return s != null ? s : EMPTY_STRING;
+    }
+}
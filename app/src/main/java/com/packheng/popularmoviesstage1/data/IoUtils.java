@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+/**
+ * File helpers shared by the stores of this package.
+ * <p>
+ * Files are written to a temporary file renamed on success, so that a crash never leaves a
+ * truncated file behind: readers either find the previous content or the new one.
+ */
+final class IoUtils {
+    private static final String TEMP_FILE_EXTENSION = ".tmp";
+    private static final String CHARSET = "UTF-8";
+
+    /**
+     * Writes the content of a file.
+     */
+    interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private IoUtils() {}
+
+    /**
+     * Writes a file in place of the previous one, see
+     * {@link #writeAtomically(File, ContentWriter, boolean)}.
+     */
+    static void writeAtomically(File file, ContentWriter contentWriter) throws IOException {
+        writeAtomically(file, contentWriter, false);
+    }
+
+    /**
+     * Writes a file in place of the previous one. The temporary file is deleted on failure.
+     *
+     * @param file the file.
+     * @param contentWriter writes the content.
+     * @param sync true to flush the content to the disk before the rename, for files that must
+     *             survive a power loss.
+     * @throws IOException if the file couldn't be written or renamed.
+     */
+    static void writeAtomically(File file, ContentWriter contentWriter, boolean sync)
+            throws IOException {
+        File tempFile = new File(file.getParentFile(), file.getName() + TEMP_FILE_EXTENSION);
+        FileOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new FileOutputStream(tempFile);
+            contentWriter.writeTo(out);
+            if (sync) {
+                out.getFD().sync();
+            }
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to rename " + tempFile.getName());
+            }
+            written = true;
+        } finally {
+            closeQuietly(out);
+            if (!written) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes an object as UTF-8 JSON in place of the previous file, see
+     * {@link #writeAtomically(File, ContentWriter)}.
+     */
+    static void writeJsonAtomically(File file, final Gson gson, final Object src,
+                                    final Type typeOfSrc) throws IOException {
+        writeAtomically(file, new ContentWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Writer writer = new OutputStreamWriter(out, CHARSET);
+                gson.toJson(src, typeOfSrc, writer);
+                writer.flush();
+            }
+        });
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing more can be done.
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.packheng.popularmoviesstage1.BuildConfig;
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.TMDB.TMDBClient;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.packheng.popularmoviesstage1.data.IoUtils.closeQuietly;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeJsonAtomically;
+
+/**
+ * Store of the details of the movies, with their videos and reviews, by TMDB id.
+ * <p>
+ * Details are kept in memory for the last movies opened and in a JSON file per movie, in the
+ * cache directory of the app. Details older than their time to live are fetched again, with a
+ * single request per movie however many times they are requested meanwhile, e.g. when they are
+ * prefetched as a poster is pressed and then loaded by the details screen. Stale details are
+ * still returned when the request fails. Only the files last written are kept, up to
+ * {@link #DEFAULT_MAX_FILES}, so that the cache doesn't grow with every movie opened.
+ * Results are delivered on the main thread.
+ */
+public class MovieDetailsStore {
+    private static final String LOG_TAG = MovieDetailsStore.class.getSimpleName();
+
+    /** Time after which cached details are refreshed from the network. */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /** Files of details kept at most, a few hundred kilobytes of JSON. */
+    public static final int DEFAULT_MAX_FILES = 50;
+
+    private static final String CACHE_DIR_NAME = "movie_details_cache";
+    private static final String FILE_EXTENSION = ".json";
+    private static final String CHARSET = "UTF-8";
+    private static final int MAX_MEMORY_ENTRIES = 20;
+
+    private static MovieDetailsStore instance;
+
+    /**
+     * Called on the main thread with the details, or null if they couldn't be loaded.
+     */
+    public interface OnDetailsLoadedListener {
+        void onDetailsLoaded(@Nullable MovieDetails details);
+    }
+
+    private final File cacheDir;
+    private final TMDBEndpointInterface apiService;
+    private final String apiKey;
+    private final long ttlMillis;
+    private final int maxFiles;
+    private final Executor diskExecutor;
+    private final Executor mainThreadExecutor;
+    private final Gson gson = MoviesPageTypeAdapter.createGson();
+
+    // Last details loaded, least recently used first. Guarded by this.
+    private final Map<Integer, CachedDetails> memoryCache =
+            new LinkedHashMap<Integer, CachedDetails>(MAX_MEMORY_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, CachedDetails> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+    // Loads in progress, by movie id. Guarded by this.
+    private final Map<Integer, Load> loads = new HashMap<>();
+
+    private static class Load {
+        final List<OnDetailsLoadedListener> listeners = new ArrayList<>();
+        // Set once the disk cache was read and the details have to be fetched.
+        Call<MovieDetails> call;
+        boolean cancelled;
+    }
+
+    /**
+     * Details as stored on disk, with the time they were fetched.
+     */
+    static class CachedDetails {
+        @SerializedName("saved_at")
+        final long savedAt;
+        @SerializedName("details")
+        final MovieDetails details;
+
+        CachedDetails(long savedAt, MovieDetails details) {
+            this.savedAt = savedAt;
+            this.details = details;
+        }
+
+        boolean isStale(long ttlMillis) {
+            long age = System.currentTimeMillis() - savedAt;
+            return age < 0 || age > ttlMillis;
+        }
+    }
+
+    @VisibleForTesting
+    MovieDetailsStore(File cacheDir, TMDBEndpointInterface apiService, String apiKey,
+                      long ttlMillis, int maxFiles, AppExecutors executors) {
+        this.cacheDir = cacheDir;
+        this.apiService = apiService;
+        this.apiKey = apiKey;
+        this.ttlMillis = ttlMillis;
+        this.maxFiles = maxFiles;
+        this.diskExecutor = executors.diskIO();
+        this.mainThreadExecutor = executors.mainThread();
+    }
+
+    public static synchronized MovieDetailsStore getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new MovieDetailsStore(new File(appContext.getCacheDir(), CACHE_DIR_NAME),
+                    TMDBClient.getInstance(appContext).getApiService(), BuildConfig.ApiKey,
+                    DEFAULT_TTL_MILLIS, DEFAULT_MAX_FILES, AppExecutors.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the details of a movie, from memory, disk or TMDB.
+     *
+     * @param movieId the TMDB id of the movie.
+     * @param listener called on the main thread with the details.
+     */
+    public void load(int movieId, OnDetailsLoadedListener listener) {
+        start(movieId, listener);
+    }
+
+    /**
+     * Loads the details of a movie ahead of their display, e.g. when its poster is pressed.
+     *
+     * @param movieId the TMDB id of the movie.
+     */
+    public void prefetch(int movieId) {
+        start(movieId, null);
+    }
+
+    /**
+     * Cancels a prefetch, e.g. when the press on the poster turns into a scroll. Loads that were
+     * requested with a listener meanwhile go on.
+     *
+     * @param movieId the TMDB id of the movie.
+     */
+    public synchronized void cancelPrefetch(int movieId) {
+        Load load = loads.get(movieId);
+        if (load != null && load.listeners.isEmpty()) {
+            load.cancelled = true;
+            if (load.call != null) {
+                load.call.cancel();
+            }
+            loads.remove(movieId);
+        }
+    }
+
+    private void start(final int movieId, @Nullable final OnDetailsLoadedListener listener) {
+        final Load load;
+        synchronized (this) {
+            CachedDetails cached = memoryCache.get(movieId);
+            if (cached != null && !cached.isStale(ttlMillis)) {
+                if (listener != null) {
+                    deliver(cached.details, listener);
+                }
+                return;
+            }
+
+            Load inFlightLoad = loads.get(movieId);
+            if (inFlightLoad != null) {
+                if (listener != null) {
+                    inFlightLoad.listeners.add(listener);
+                }
+                return;
+            }
+
+            load = new Load();
+            if (listener != null) {
+                load.listeners.add(listener);
+            }
+            loads.put(movieId, load);
+        }
+
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                CachedDetails cached = read(movieId);
+                if (cached != null && !cached.isStale(ttlMillis)) {
+                    complete(movieId, load, cached);
+                } else {
+                    fetch(movieId, load, cached);
+                }
+            }
+        });
+    }
+
+    private void fetch(final int movieId, final Load load, @Nullable final CachedDetails stale) {
+        synchronized (this) {
+            if (load.cancelled) {
+                return;
+            }
+            load.call = apiService.movieDetails(movieId, apiKey,
+                    TMDBEndpointInterface.DETAILS_APPENDED_RESPONSES);
+        }
+
+        load.call.enqueue(new Callback<MovieDetails>() {
+            @Override
+            public void onResponse(Call<MovieDetails> call, Response<MovieDetails> response) {
+                final MovieDetails details = response.body();
+                if (details == null) {
+                    complete(movieId, load, stale);
+                    return;
+                }
+                final CachedDetails fetched =
+                        new CachedDetails(System.currentTimeMillis(), details);
+                diskExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        write(movieId, fetched);
+                    }
+                });
+                complete(movieId, load, fetched);
+            }
+
+            @Override
+            public void onFailure(Call<MovieDetails> call, Throwable t) {
+                complete(movieId, load, stale);
+            }
+        });
+    }
+
+    private void complete(int movieId, Load load, @Nullable CachedDetails cached) {
+        List<OnDetailsLoadedListener> listeners;
+        synchronized (this) {
+            if (load.cancelled || loads.get(movieId) != load) {
+                return;
+            }
+            loads.remove(movieId);
+            if (cached != null) {
+                memoryCache.put(movieId, cached);
+            }
+            listeners = load.listeners;
+        }
+        MovieDetails details = cached != null ? cached.details : null;
+        for (OnDetailsLoadedListener listener : listeners) {
+            deliver(details, listener);
+        }
+    }
+
+    private void deliver(@Nullable final MovieDetails details,
+                         final OnDetailsLoadedListener listener) {
+        mainThreadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onDetailsLoaded(details);
+            }
+        });
+    }
+
+    @Nullable
+    private CachedDetails read(int movieId) {
+        File file = fileFor(movieId);
+        if (!file.exists()) {
+            return null;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+            CachedDetails cached = gson.fromJson(reader, CachedDetails.class);
+            return cached != null && cached.details != null ? cached : null;
+        } catch (IOException | JsonParseException e) {
+            Log.e(LOG_TAG, "Unable to read the cached details " + file.getName(), e);
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void write(int movieId, CachedDetails cached) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the cache directory.");
+            return;
+        }
+
+        File file = fileFor(movieId);
+        try {
+            writeJsonAtomically(file, gson, cached, CachedDetails.class);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to write the cached details " + file.getName(), e);
+            return;
+        }
+        prune();
+    }
+
+    /**
+     * Deletes the files least recently written beyond the maximum number of files.
+     */
+    private void prune() {
+        File[] files = cacheDir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(FILE_EXTENSION);
+            }
+        });
+        if (files == null || files.length <= maxFiles) {
+            return;
+        }
+
+        // Read each date once, as they could change while sorting.
+        final Map<File, Long> lastModified = new HashMap<>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long aModified = lastModified.get(a);
+                long bModified = lastModified.get(b);
+                return aModified < bModified ? -1 : (aModified == bModified ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            if (!files[i].delete()) {
+                Log.e(LOG_TAG, "Unable to delete the cached details " + files[i].getName());
+            }
+        }
+    }
+
+    private File fileFor(int movieId) {
+        return new File(cacheDir, movieId + FILE_EXTENSION);
+    }
+}
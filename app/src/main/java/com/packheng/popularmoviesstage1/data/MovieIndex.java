@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of movies by TMDB id, an open addressing hash table keyed by primitive ints: lookups
+ * take constant time without boxing the ids. Not thread safe.
+ */
+public class MovieIndex {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] ids;
+    private Movie[] movies;
+    private int size;
+
+    public MovieIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of movies expected, to avoid growing the table.
+     */
+    public MovieIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Adds a movie, replacing the movie with the same id if any.
+     *
+     * @param movie the movie.
+     */
+    public void put(Movie movie) {
+        if (2 * (size + 1) > ids.length) {
+            grow();
+        }
+        int slot = findSlot(movie.getId());
+        if (movies[slot] == null) {
+            ids[slot] = movie.getId();
+            size++;
+        }
+        movies[slot] = movie;
+    }
+
+    /**
+     * @param movieId the TMDB id of a movie.
+     * @return the movie, or null if it isn't indexed.
+     */
+    @Nullable
+    public Movie get(int movieId) {
+        return movies[findSlot(movieId)];
+    }
+
+    /**
+     * @return the indexed movies, in no particular order.
+     */
+    public List<Movie> getMovies() {
+        List<Movie> indexedMovies = new ArrayList<>(size);
+        for (Movie movie : movies) {
+            if (movie != null) {
+                indexedMovies.add(movie);
+            }
+        }
+        return indexedMovies;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    // Slot of the id, or the empty slot where it would be added. The table is never full.
+    private int findSlot(int movieId) {
+        int mask = ids.length - 1;
+        int slot = hash(movieId) & mask;
+        while (movies[slot] != null && ids[slot] != movieId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldIds = ids;
+        Movie[] oldMovies = movies;
+        allocate(2 * oldIds.length);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldMovies[i] != null) {
+                int slot = findSlot(oldIds[i]);
+                ids[slot] = oldIds[i];
+                movies[slot] = oldMovies[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        movies = new Movie[capacity];
+        size = 0;
+    }
+
+    // Power of two keeping the table at most half full.
+    private static int capacityFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // TMDB ids are sequential, so spread them over the table.
+    private static int hash(int movieId) {
+        int h = movieId * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static com.packheng.popularmoviesstage1.data.IoUtils.closeQuietly;
+import static com.packheng.popularmoviesstage1.data.IoUtils.writeJsonAtomically;
+
+/**
+ * Persistent on-disk store of the pages of the TMDB movies lists, keyed by endpoint and page.
+ * Each page is kept in its own JSON file. Reads and writes happen on a single background thread
+ * and read results are delivered on the main thread. The cached movies are also indexed by TMDB
+ * id, the index being read from the files on the first lookup and kept up to date by the writes.
+ * A listener can be notified of the movies of each page written, e.g. to index them for search.
+ */
+public class MoviesCache {
+    private static final String LOG_TAG = MoviesCache.class.getSimpleName();
+
+    /** Time after which a cached page is refreshed from the network. */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(4);
+
+    private static final String CACHE_DIR_NAME = "movies_cache";
+    private static final String FILE_EXTENSION = ".json";
+    private static final String CHARSET = "UTF-8";
+
+    private static MoviesCache instance;
+
+    private final File cacheDir;
+    private final Gson gson = MoviesPageTypeAdapter.createGson();
+    private final Executor diskExecutor;
+    private final Executor mainThreadExecutor;
+    // Movies of all the cached pages by id, null until the first lookup. Guarded by this.
+    private MovieIndex movieIndex;
+    private OnMoviesCachedListener onMoviesCachedListener;
+
+    /**
+     * Called on the main thread with the page read from the cache, or null if there's none.
+     */
+    public interface OnPageLoadedListener {
+        void onPageLoaded(@Nullable CachedPage cachedPage);
+    }
+
+    /**
+     * Called on the main thread with the movie found in the cache, or null if there's none.
+     */
+    public interface OnMovieFoundListener {
+        void onMovieFound(@Nullable Movie movie);
+    }
+
+    /**
+     * Called on the thread writing a page, once written, with the movies of the page.
+     */
+    public interface OnMoviesCachedListener {
+        @WorkerThread
+        void onMoviesCached(List<Movie> movies);
+    }
+
+    private MoviesCache(File cacheDir, AppExecutors executors) {
+        this.cacheDir = cacheDir;
+        this.diskExecutor = executors.diskIO();
+        this.mainThreadExecutor = executors.mainThread();
+    }
+
+    public static synchronized MoviesCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MoviesCache(
+                    new File(context.getApplicationContext().getFilesDir(), CACHE_DIR_NAME),
+                    AppExecutors.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a cached page in the background.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page number.
+     * @param listener called on the main thread with the result.
+     */
+    public void load(final String endpoint, final int page, final OnPageLoadedListener listener) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final CachedPage cachedPage = read(endpoint, page);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onPageLoaded(cachedPage);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Saves a page in the background, replacing any previously cached version.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page number.
+     * @param response the page to cache.
+     */
+    public void save(final String endpoint, final int page, final MoviesPage response) {
+        final CachedPage cachedPage = new CachedPage(System.currentTimeMillis(), response);
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(endpoint, page, cachedPage);
+            }
+        });
+    }
+
+    /**
+     * Looks for a movie in the cached pages in the background, e.g. when the movies held in
+     * memory were lost with the process.
+     *
+     * @param movieId the TMDB id of the movie.
+     * @param listener called on the main thread with the result.
+     */
+    public void findMovie(final int movieId, final OnMovieFoundListener listener) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Movie movie = find(movieId);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onMovieFound(movie);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Saves a page on the calling thread, replacing any previously cached version, e.g. from a
+     * background job that must not finish before the page is written.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page number.
+     * @param response the page to cache.
+     */
+    @WorkerThread
+    public void saveNow(String endpoint, int page, MoviesPage response) {
+        write(endpoint, page, new CachedPage(System.currentTimeMillis(), response));
+    }
+
+    /**
+     * @param listener notified of the movies of every page written from now on.
+     */
+    public synchronized void setOnMoviesCachedListener(OnMoviesCachedListener listener) {
+        onMoviesCachedListener = listener;
+    }
+
+    /**
+     * Reads the movies of all the cached pages, once each, on the calling thread.
+     *
+     * @return the movies, in no particular order.
+     */
+    @WorkerThread
+    public synchronized List<Movie> readAllMovies() {
+        indexAll();
+        return movieIndex.getMovies();
+    }
+
+    @Nullable
+    private synchronized Movie find(int movieId) {
+        indexAll();
+        return movieIndex.get(movieId);
+    }
+
+    private void indexAll() {
+        if (movieIndex == null) {
+            movieIndex = new MovieIndex();
+            File[] files = cacheDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(FILE_EXTENSION)) {
+                        index(read(file));
+                    }
+                }
+            }
+        }
+    }
+
+    private void index(@Nullable CachedPage cachedPage) {
+        if (cachedPage == null || cachedPage.getResponse().getMovies() == null) {
+            return;
+        }
+        for (Movie movie : cachedPage.getResponse().getMovies()) {
+            movieIndex.put(movie);
+        }
+    }
+
+    @Nullable
+    private CachedPage read(String endpoint, int page) {
+        return read(fileFor(endpoint, page));
+    }
+
+    @Nullable
+    private CachedPage read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), CHARSET);
+            CachedPage cachedPage = gson.fromJson(reader, CachedPage.class);
+            if (cachedPage == null || cachedPage.getResponse() == null) {
+                return null;
+            }
+            return cachedPage;
+        } catch (IOException | JsonParseException e) {
+            Log.e(LOG_TAG, "Unable to read the cached page " + file.getName(), e);
+            // A corrupt file would fail again next time.
+            file.delete();
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    // Synchronized as saveNow() writes outside of the disk executor.
+    private synchronized void write(String endpoint, int page, CachedPage cachedPage) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the cache directory.");
+            return;
+        }
+
+        File file = fileFor(endpoint, page);
+        try {
+            writeJsonAtomically(file, gson, cachedPage, CachedPage.class);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to write the cached page " + file.getName(), e);
+            return;
+        }
+        if (movieIndex != null) {
+            index(cachedPage);
+        }
+        List<Movie> movies = cachedPage.getResponse().getMovies();
+        if (onMoviesCachedListener != null && movies != null) {
+            onMoviesCachedListener.onMoviesCached(movies);
+        }
+    }
+
+    private File fileFor(String endpoint, int page) {
+        return new File(cacheDir, endpoint.replace('/', '_') + "_" + page + FILE_EXTENSION);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Warms the store up once the first page of a list is shown: the next pages of the list and the
+ * first page of the other list are loaded in parallel, a limited number at a time, so that
+ * scrolling and switching the sort order are served without waiting on the network.
+ * <p>
+ * Only used on the main thread.
+ */
+public class MoviesPrefetcher {
+
+    /**
+     * Loads a page into the store.
+     */
+    public interface PageFetcher {
+        /**
+         * @param endpoint the TMDB endpoint of the list.
+         * @param page the page number.
+         * @param onDone to run once on the main thread when the page is stored, has failed or
+         *               was cancelled.
+         */
+        void prefetch(String endpoint, int page, Runnable onDone);
+    }
+
+    private static class PageRequest {
+        final String endpoint;
+        final int page;
+
+        PageRequest(String endpoint, int page) {
+            this.endpoint = endpoint;
+            this.page = page;
+        }
+    }
+
+    private final PageFetcher pageFetcher;
+    private final int maxConcurrentRequests;
+    private final Queue<PageRequest> pendingRequests = new ArrayDeque<>();
+    // Requests started and not done yet, whichever warm-up they belong to.
+    private int runningRequests;
+    // Endpoint of the list the current warm-up was started for, null if there's none.
+    private String warmUpEndpoint;
+
+    /**
+     * @param pageFetcher loads the pages into the store.
+     * @param maxConcurrentRequests maximum number of pages loaded at the same time.
+     */
+    public MoviesPrefetcher(PageFetcher pageFetcher, int maxConcurrentRequests) {
+        this.pageFetcher = pageFetcher;
+        this.maxConcurrentRequests = Math.max(maxConcurrentRequests, 1);
+    }
+
+    /**
+     * Replaces any previous warm-up.
+     *
+     * @param endpoint the TMDB endpoint of the list shown.
+     * @param totalPages the total number of pages of the list shown.
+     * @param nextPageCount number of pages to load after the first one.
+     * @param otherEndpoint the TMDB endpoint of the other list, whose first page is loaded too.
+     */
+    @MainThread
+    public void warmUp(String endpoint, int totalPages, int nextPageCount, String otherEndpoint) {
+        cancel();
+        warmUpEndpoint = endpoint;
+        int lastPage = Math.min(1 + nextPageCount, totalPages);
+        for (int page = 2; page <= lastPage; page++) {
+            pendingRequests.add(new PageRequest(endpoint, page));
+        }
+        pendingRequests.add(new PageRequest(otherEndpoint, 1));
+        startPendingRequests();
+    }
+
+    /**
+     * Drops the pages not requested yet. Requests already started run to completion unless they
+     * are cancelled by their owner, and count towards the maximum number of requests until then,
+     * so that a new warm-up doesn't add its requests to theirs.
+     */
+    @MainThread
+    public void cancel() {
+        warmUpEndpoint = null;
+        pendingRequests.clear();
+    }
+
+    /**
+     * @return the endpoint of the list the current warm-up was started for, null if there's none.
+     */
+    @Nullable
+    @MainThread
+    public String getWarmUpEndpoint() {
+        return warmUpEndpoint;
+    }
+
+    /**
+     * @return the number of pages not requested yet.
+     */
+    @MainThread
+    public int getPendingCount() {
+        return pendingRequests.size();
+    }
+
+    private void startPendingRequests() {
+        while (runningRequests < maxConcurrentRequests && !pendingRequests.isEmpty()) {
+            PageRequest request = pendingRequests.poll();
+            runningRequests++;
+            pageFetcher.prefetch(request.endpoint, request.page, new Runnable() {
+                @Override
+                public void run() {
+                    runningRequests--;
+                    startPendingRequests();
+                }
+            });
+        }
+    }
+}
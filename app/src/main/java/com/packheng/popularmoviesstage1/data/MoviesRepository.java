@@ -0,0 +1,464 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.content.Context;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.BuildConfig;
+import com.packheng.popularmoviesstage1.R;
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+import com.packheng.popularmoviesstage1.TMDB.MoviesMapper;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.TMDB.TMDBClient;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.catalog.MovieCatalog;
+import com.packheng.popularmoviesstage1.catalog.MovieQuery;
+import com.packheng.popularmoviesstage1.images.PosterColorStore;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.paging.PageTracker;
+import com.packheng.popularmoviesstage1.search.MovieSearchIndex;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static com.packheng.popularmoviesstage1.utils.NetworkUtils.isNetworkConnected;
+
+/**
+ * Application wide access to the movies: the pages of the lists, from the disk cache or from
+ * TMDB, and the movies already loaded, by TMDB id.
+ * <p>
+ * Fetched pages are saved in the disk cache. The movies held in memory outlive the activities,
+ * so that a screen can be rebuilt without any request. Once the first page of a list is shown,
+ * the following pages and the first page of the other list are warmed up in the background.
+ * The cached movies are indexed for search, and laid out in a catalog that can be sorted and
+ * filtered locally, as their pages are written.
+ */
+public class MoviesRepository {
+
+    /**
+     * Called on the main thread with the movie, or null if it is unknown.
+     */
+    public interface OnMovieLoadedListener {
+        void onMovieLoaded(@Nullable Movie movie);
+    }
+
+    /**
+     * Called on the main thread with the movies found.
+     */
+    public interface OnMoviesFoundListener {
+        void onMoviesFound(List<Movie> movies);
+    }
+
+    private static MoviesRepository instance;
+
+    private final Context context;
+    private final MoviesCache moviesCache;
+    private final MovieDetailsStore movieDetailsStore;
+    private final FavoritesStore favoritesStore;
+    private final TMDBEndpointInterface apiService;
+    private final MoviesRequestCoordinator requestCoordinator;
+    // Prepares the movies only found on disk, the same way as the grid does.
+    private final MoviesMapper moviesMapper;
+    private final MoviesPrefetcher moviesPrefetcher;
+    // Listeners of the warm-up requests in flight, with what to run once they are done. Only
+    // accessed on the main thread.
+    private final Map<MoviesRequestCoordinator.OnPageListener, Runnable> prefetchListeners =
+            new HashMap<>();
+    private final int warmUpNextPages;
+    // Movies loaded so far, by TMDB id. Only accessed on the main thread.
+    private final MovieIndex moviesById = new MovieIndex();
+    // Words of the cached movies and of the movies found by TMDB searches.
+    private final MovieSearchIndex searchIndex = new MovieSearchIndex();
+    // Columns of the cached movies.
+    private final MovieCatalog catalog = new MovieCatalog();
+    // True once the movies cached before the launch are indexed. Only accessed on the disk thread.
+    private boolean areCachedMoviesIndexed;
+    private final Executor diskExecutor;
+    private final Executor mainThreadExecutor;
+
+    private MoviesRepository(Context context) {
+        this.context = context;
+        moviesCache = MoviesCache.getInstance(context);
+        movieDetailsStore = MovieDetailsStore.getInstance(context);
+        favoritesStore = FavoritesStore.getInstance(context);
+        apiService = TMDBClient.getInstance(context).getApiService();
+        requestCoordinator = new MoviesRequestCoordinator(apiService, BuildConfig.ApiKey);
+        requestCoordinator.setOnPageFetchedListener(
+                new MoviesRequestCoordinator.OnPageFetchedListener() {
+                    @Override
+                    public void onPageFetched(String endpoint, int page, MoviesPage moviesPage) {
+                        moviesCache.save(endpoint, page, moviesPage);
+                    }
+                });
+
+        // Index the movies of the new pages as they are cached.
+        moviesCache.setOnMoviesCachedListener(new MoviesCache.OnMoviesCachedListener() {
+            @Override
+            public void onMoviesCached(List<Movie> movies) {
+                searchIndex.addAll(movies);
+                catalog.addAll(movies);
+            }
+        });
+
+        AppExecutors executors = AppExecutors.getInstance();
+        diskExecutor = executors.diskIO();
+        mainThreadExecutor = executors.mainThread();
+        moviesMapper = new MoviesMapper(executors.mapping(), executors.mainThread(),
+                new PosterSizeResolver((int) context.getResources()
+                        .getDimension(R.dimen.main_movie_poster_width)),
+                PosterColorStore.getInstance(context));
+
+        warmUpNextPages = context.getResources().getInteger(R.integer.warm_up_next_pages);
+        moviesPrefetcher = new MoviesPrefetcher(new MoviesPrefetcher.PageFetcher() {
+            @Override
+            public void prefetch(String endpoint, int page, Runnable onDone) {
+                prefetchPage(endpoint, page, onDone);
+            }
+        }, context.getResources().getInteger(R.integer.warm_up_max_concurrent_requests));
+    }
+
+    public static synchronized MoviesRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new MoviesRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a page from the disk cache.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page number.
+     * @param listener called on the main thread with the page, or null if it isn't cached.
+     */
+    public void loadCachedPage(String endpoint, int page,
+                               MoviesCache.OnPageLoadedListener listener) {
+        moviesCache.load(endpoint, page, listener);
+    }
+
+    /**
+     * Fetches a page from TMDB and saves it in the disk cache. A page already being fetched
+     * isn't requested twice.
+     *
+     * @param endpoint the TMDB endpoint of the list.
+     * @param page the page number.
+     * @param listener notified with the result on the main thread.
+     */
+    public void fetchPage(String endpoint, int page,
+                          MoviesRequestCoordinator.OnPageListener listener) {
+        requestCoordinator.request(endpoint, page, listener);
+    }
+
+    /**
+     * Loads the pages likely to be shown next into the disk cache, in the background.
+     *
+     * @param endpoint the TMDB endpoint of the list shown.
+     * @param totalPages the total number of pages of the list shown.
+     */
+    @MainThread
+    public void warmUp(String endpoint, int totalPages) {
+        if (!isNetworkConnected(context)) {
+            return;
+        }
+        String otherEndpoint = TMDBEndpointInterface.TOP_RATED_ENDPOINT.equals(endpoint)
+                ? TMDBEndpointInterface.MOST_POPULAR_ENDPOINT
+                : TMDBEndpointInterface.TOP_RATED_ENDPOINT;
+        moviesPrefetcher.warmUp(endpoint, totalPages, warmUpNextPages, otherEndpoint);
+    }
+
+    /**
+     * Cancels the requests for the given lists, and the pending warm-up if it was started for one
+     * of them. The requests for the other lists, e.g. started by another screen, go on.
+     *
+     * @param endpoints the TMDB endpoints of the lists.
+     */
+    @MainThread
+    public void cancelRequests(Collection<String> endpoints) {
+        String warmUpEndpoint = moviesPrefetcher.getWarmUpEndpoint();
+        if (warmUpEndpoint != null && endpoints.contains(warmUpEndpoint)) {
+            moviesPrefetcher.cancel();
+        }
+        for (MoviesRequestCoordinator.OnPageListener listener
+                : requestCoordinator.cancelAll(endpoints)) {
+            // The warm-up counts its requests until they are done, cancelled ones included.
+            Runnable onDone = prefetchListeners.remove(listener);
+            if (onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+
+    /**
+     * Fetches a page for the warm-up, unless a fresh version is already cached.
+     */
+    private void prefetchPage(final String endpoint, final int page, final Runnable onDone) {
+        moviesCache.load(endpoint, page, new MoviesCache.OnPageLoadedListener() {
+            @Override
+            public void onPageLoaded(@Nullable CachedPage cachedPage) {
+                if (cachedPage != null && !cachedPage.isStale(MoviesCache.DEFAULT_TTL_MILLIS)) {
+                    onDone.run();
+                    return;
+                }
+                MoviesRequestCoordinator.OnPageListener listener =
+                        new MoviesRequestCoordinator.OnPageListener() {
+                            @Override
+                            public void onPageLoaded(MoviesPage moviesPage) {
+                                prefetchListeners.remove(this);
+                                onDone.run();
+                            }
+
+                            @Override
+                            public void onPageFailed() {
+                                prefetchListeners.remove(this);
+                                onDone.run();
+                            }
+                        };
+                prefetchListeners.put(listener, onDone);
+                requestCoordinator.request(endpoint, page, listener);
+            }
+        });
+    }
+
+    /**
+     * Remembers movies prepared for display, so that they can be looked up by id.
+     *
+     * @param movies the prepared movies.
+     */
+    @MainThread
+    public void putMovies(List<Movie> movies) {
+        for (Movie movie : movies) {
+            moviesById.put(movie);
+        }
+    }
+
+    /**
+     * @param movieId the TMDB id of the movie.
+     * @return the movie if it is held in memory, null otherwise.
+     */
+    @MainThread
+    @Nullable
+    public Movie getMovie(int movieId) {
+        return moviesById.get(movieId);
+    }
+
+    /**
+     * Gets a movie from memory, or from the favorites or the disk cache when the process was
+     * restarted since it was loaded.
+     *
+     * @param movieId the TMDB id of the movie.
+     * @param listener called on the main thread with the movie, straight away if it is held in
+     *                 memory.
+     */
+    @MainThread
+    public void loadMovie(final int movieId, final OnMovieLoadedListener listener) {
+        Movie movie = moviesById.get(movieId);
+        if (movie != null) {
+            listener.onMovieLoaded(movie);
+            return;
+        }
+
+        favoritesStore.load(new FavoritesStore.OnFavoritesLoadedListener() {
+            @Override
+            public void onFavoritesLoaded(List<Movie> favorites) {
+                Movie favorite = favoritesStore.getFavorite(movieId);
+                if (favorite != null) {
+                    mapMovie(favorite, listener);
+                } else {
+                    findCachedMovie(movieId, listener);
+                }
+            }
+        });
+    }
+
+    private void findCachedMovie(final int movieId, final OnMovieLoadedListener listener) {
+        moviesCache.findMovie(movieId, new MoviesCache.OnMovieFoundListener() {
+            @Override
+            public void onMovieFound(@Nullable Movie movie) {
+                if (movie != null) {
+                    mapMovie(movie, listener);
+                    return;
+                }
+                // Not in any cached list, e.g. opened from a link: use its details instead.
+                movieDetailsStore.load(movieId, new MovieDetailsStore.OnDetailsLoadedListener() {
+                    @Override
+                    public void onDetailsLoaded(@Nullable MovieDetails details) {
+                        if (details == null) {
+                            listener.onMovieLoaded(null);
+                        } else {
+                            mapMovie(details.getMovie(), listener);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void mapMovie(Movie movie, final OnMovieLoadedListener listener) {
+        moviesMapper.map(Collections.singletonList(movie),
+                new MoviesMapper.OnMoviesMappedListener() {
+                    @Override
+                    public void onMoviesMapped(List<Movie> movies) {
+                        putMovies(movies);
+                        listener.onMovieLoaded(movies.get(0));
+                    }
+                });
+    }
+
+    /**
+     * Searches the cached movies for the ones with words starting with the words of a query.
+     * The first search reads the cached movies, later ones only query the index in memory.
+     *
+     * @param query the query, e.g. as typed by the user.
+     * @param limit the maximum number of movies found.
+     * @param listener called on the main thread with the movies found, not prepared for display.
+     */
+    public void searchCachedMovies(final String query, final int limit,
+                                   final OnMoviesFoundListener listener) {
+        // On the disk thread, so that the first search waits for the cached movies to be read.
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                indexCachedMovies();
+                final List<Movie> movies = searchIndex.search(query, limit);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onMoviesFound(movies);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sorts and filters the cached movies locally, without any request. The first query reads
+     * the cached movies, later ones only sort the catalog in memory.
+     *
+     * @param query the filters and the sort keys.
+     * @param limit the maximum number of movies found.
+     * @param listener called on the main thread with the movies found, not prepared for display.
+     */
+    public void queryCatalog(final MovieQuery query, final int limit,
+                             final OnMoviesFoundListener listener) {
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                indexCachedMovies();
+                final List<Movie> movies = catalog.query(query, limit);
+                mainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onMoviesFound(movies);
+                    }
+                });
+            }
+        });
+    }
+
+    // Indexes the movies cached before the launch. Pages cached since are already indexed.
+    private void indexCachedMovies() {
+        if (!areCachedMoviesIndexed) {
+            areCachedMoviesIndexed = true;
+            List<Movie> cachedMovies = moviesCache.readAllMovies();
+            searchIndex.addAll(cachedMovies);
+            catalog.addAll(cachedMovies);
+        }
+    }
+
+    /**
+     * Searches TMDB for movies. The movies found are indexed, so that the next searches find
+     * them without any request.
+     *
+     * @param query the query.
+     * @param listener notified on the main thread with the first page of the movies found.
+     * @return the call, to cancel it when the query changes.
+     */
+    public Call<MoviesPage> searchMovies(String query,
+                                         final MoviesRequestCoordinator.OnPageListener listener) {
+        Call<MoviesPage> call = apiService.searchMovies(BuildConfig.ApiKey, query,
+                PageTracker.FIRST_PAGE);
+        call.enqueue(new Callback<MoviesPage>() {
+            @Override
+            public void onResponse(Call<MoviesPage> call, Response<MoviesPage> response) {
+                final MoviesPage moviesPage = response.body();
+                if (moviesPage == null || moviesPage.getMovies() == null) {
+                    listener.onPageFailed();
+                    return;
+                }
+                // Not on the main thread, which would wait for the index to be read.
+                diskExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        searchIndex.addAll(moviesPage.getMovies());
+                    }
+                });
+                listener.onPageLoaded(moviesPage);
+            }
+
+            @Override
+            public void onFailure(Call<MoviesPage> call, Throwable t) {
+                if (!call.isCanceled()) {
+                    listener.onPageFailed();
+                }
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Loads the details of a movie, with its videos and reviews, from the cache or from TMDB.
+     *
+     * @param movieId the TMDB id of the movie.
+     * @param listener called on the main thread with the details, or null if they couldn't be
+     *                 loaded.
+     */
+    public void loadMovieDetails(int movieId, MovieDetailsStore.OnDetailsLoadedListener listener) {
+        movieDetailsStore.load(movieId, listener);
+    }
+
+    /**
+     * Starts loading the details of a movie which is likely to be opened, e.g. as its poster is
+     * pressed, so that they are ready by the time the details screen shows.
+     *
+     * @param movieId the TMDB id of the movie.
+     */
+    public void prefetchMovieDetails(int movieId) {
+        movieDetailsStore.prefetch(movieId);
+    }
+
+    /**
+     * Cancels {@link #prefetchMovieDetails(int)} if the details screen didn't ask for them yet.
+     *
+     * @param movieId the TMDB id of the movie.
+     */
+    public void cancelMovieDetailsPrefetch(int movieId) {
+        movieDetailsStore.cancelPrefetch(movieId);
+    }
+}
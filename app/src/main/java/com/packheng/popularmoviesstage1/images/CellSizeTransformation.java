@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import com.squareup.picasso.Transformation;
+
+/**
+ * Picasso {@link Transformation} scaling down and center-cropping a grid poster to the size of
+ * its cell, like {@code resize(width, height).centerCrop().onlyScaleDown()} would.
+ * <p>
+ * {@link PooledPosterRequestHandler} already decodes the posters of the requests carrying it at
+ * the cell size, into pooled bitmaps that this transformation then leaves untouched: Picasso's
+ * own resizing would copy them, and they couldn't be reused anymore.
+ */
+public class CellSizeTransformation implements Transformation {
+    private static final Paint PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final int width;
+    private final int height;
+
+    /**
+     * @param width width of the cells in pixels.
+     * @param height height of the cells in pixels.
+     */
+    public CellSizeTransformation(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param posterWidth width of the poster in pixels.
+     * @param posterHeight height of the poster in pixels.
+     * @return whether the poster has to be scaled down to fit the cells.
+     */
+    public boolean isSmallerThan(int posterWidth, int posterHeight) {
+        return posterWidth > width || posterHeight > height;
+    }
+
+    @Override
+    public Bitmap transform(Bitmap source) {
+        if (!isSmallerThan(source.getWidth(), source.getHeight())) {
+            return source;
+        }
+        Bitmap.Config config = source.getConfig() != null
+                ? source.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap result = Bitmap.createBitmap(width, height, config);
+        drawCenterCrop(source, result);
+        source.recycle();
+        return result;
+    }
+
+    @Override
+    public String key() {
+        return "cellSize(" + width + "x" + height + ")";
+    }
+
+    /**
+     * Draws a bitmap scaled to cover another one, centered and cropped.
+     *
+     * @param source the bitmap drawn.
+     * @param target the mutable bitmap drawn into.
+     */
+    static void drawCenterCrop(Bitmap source, Bitmap target) {
+        float scale = Math.max(target.getWidth() / (float) source.getWidth(),
+                target.getHeight() / (float) source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((target.getWidth() - source.getWidth() * scale) / 2f,
+                (target.getHeight() - source.getHeight() * scale) / 2f);
+        new Canvas(target).drawBitmap(source, matrix, PAINT);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+
+/**
+ * Helper methods to extract the dominant color of a poster, shown in its place while it loads.
+ */
+public class DominantColor {
+
+    /** No color, i.e. transparent: the color of a poster isn't known. */
+    public static final int NO_COLOR = 0;
+
+    // Side of the thumbnail the color is extracted from.
+    private static final int SAMPLE_SIZE = 16;
+    // Bits kept per channel when grouping similar colors.
+    private static final int BITS_PER_CHANNEL = 3;
+    private static final int SHIFT = 8 - BITS_PER_CHANNEL;
+    private static final int BUCKET_COUNT = 1 << (3 * BITS_PER_CHANNEL);
+    private static final int MIN_ALPHA = 0x80;
+
+    private DominantColor() {}
+
+    /**
+     * Samples the pixels of a bitmap from a small thumbnail of it, enough to extract its
+     * dominant color with {@link #fromPixels(int[])}.
+     *
+     * @param bitmap the decoded poster.
+     * @return the pixels of the thumbnail.
+     */
+    public static int[] samplePixels(Bitmap bitmap) {
+        Bitmap thumbnail = Bitmap.createScaledBitmap(bitmap, SAMPLE_SIZE, SAMPLE_SIZE, true);
+        int[] pixels = new int[SAMPLE_SIZE * SAMPLE_SIZE];
+        thumbnail.getPixels(pixels, 0, SAMPLE_SIZE, 0, 0, SAMPLE_SIZE, SAMPLE_SIZE);
+        if (thumbnail != bitmap) {
+            thumbnail.recycle();
+        }
+        return pixels;
+    }
+
+    /**
+     * Groups the pixels of similar colors and returns the average color of the largest group.
+     * Mostly transparent pixels are ignored.
+     *
+     * @param pixels colors in ARGB format.
+     * @return an opaque color, or {@link #NO_COLOR} if all the pixels are transparent.
+     */
+    public static int fromPixels(int[] pixels) {
+        int[] counts = new int[BUCKET_COUNT];
+        int[] sums = new int[BUCKET_COUNT * 3];
+        int dominantBucket = -1;
+        for (int pixel : pixels) {
+            if ((pixel >>> 24) < MIN_ALPHA) {
+                continue;
+            }
+            int red = (pixel >> 16) & 0xff;
+            int green = (pixel >> 8) & 0xff;
+            int blue = pixel & 0xff;
+            int bucket = ((red >> SHIFT) << (2 * BITS_PER_CHANNEL))
+                    | ((green >> SHIFT) << BITS_PER_CHANNEL)
+                    | (blue >> SHIFT);
+            counts[bucket]++;
+            sums[3 * bucket] += red;
+            sums[3 * bucket + 1] += green;
+            sums[3 * bucket + 2] += blue;
+            if (dominantBucket == -1 || counts[bucket] > counts[dominantBucket]) {
+                dominantBucket = bucket;
+            }
+        }
+        if (dominantBucket == -1) {
+            return NO_COLOR;
+        }
+
+        int count = counts[dominantBucket];
+        return 0xff000000
+                | (sums[3 * dominantBucket] / count) << 16
+                | (sums[3 * dominantBucket + 1] / count) << 8
+                | (sums[3 * dominantBucket + 2] / count);
+    }
+}
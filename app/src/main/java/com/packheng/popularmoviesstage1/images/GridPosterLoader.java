@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.widget.RecyclerView;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+/**
+ * Loads the posters of a grid, decoded at the size of its cells into bitmaps reused from the
+ * {@link PosterBitmapPool}, see {@link PooledPosterRequestHandler}. The cells showing a poster
+ * must hold its bitmap with {@link #acquire(Bitmap)} and {@link #release(Bitmap)}.
+ * <p>
+ * As a {@link RecyclerView.OnScrollListener}, it pauses the loads of the grid while a fling
+ * settles, so that the cells flying by don't compete with rendering, and resumes them once the
+ * grid is idle or dragged. Posters already in the memory cache are still shown straight away.
+ */
+public class GridPosterLoader extends RecyclerView.OnScrollListener {
+    private final Picasso picasso;
+    private final PosterBitmapPool bitmapPool;
+    private final Bitmap.Config config;
+    private final CellSizeTransformation cellSize;
+    private final Object tag = new Object();
+    private boolean pauseOnFling = true;
+    private boolean paused;
+
+    /**
+     * @param picasso the {@link Picasso} instance to load with.
+     * @param bitmapPool the pool the bitmaps of the posters are reused from.
+     * @param posterSizeResolver the resolver of the poster urls, whose target size is the size
+     *                           of the cells.
+     * @param decodeRgb565 whether to decode the opaque posters with half the memory, at the cost
+     *                     of some color banding.
+     */
+    public GridPosterLoader(Picasso picasso, PosterBitmapPool bitmapPool,
+                            PosterSizeResolver posterSizeResolver, boolean decodeRgb565) {
+        this.picasso = picasso;
+        this.bitmapPool = bitmapPool;
+        this.cellSize = new CellSizeTransformation(posterSizeResolver.getTargetWidth(),
+                posterSizeResolver.getTargetHeight());
+        this.config = decodeRgb565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * @return the {@link Picasso} instance the posters are loaded with.
+     */
+    public Picasso getPicasso() {
+        return picasso;
+    }
+
+    /**
+     * @return the width of the cells in pixels.
+     */
+    public int getCellWidth() {
+        return cellSize.getWidth();
+    }
+
+    /**
+     * @return the height of the cells in pixels.
+     */
+    public int getCellHeight() {
+        return cellSize.getHeight();
+    }
+
+    /**
+     * Creates the request of a grid poster. Requests created for the same url share the same
+     * memory cache entry, whatever they are used for.
+     *
+     * @param posterUrl the url of the poster.
+     * @return a {@link RequestCreator} tagged with the grid.
+     */
+    public RequestCreator load(String posterUrl) {
+        // Sized by a transformation rather than resized: Picasso would copy the bitmap, which
+        // then couldn't be reused.
+        return picasso.load(posterUrl)
+                .config(config)
+                .transform(cellSize)
+                .tag(tag);
+    }
+
+    /**
+     * Notes that a cell shows the bitmap of a poster, so that it isn't reused meanwhile.
+     *
+     * @param bitmap the bitmap shown.
+     */
+    public void acquire(Bitmap bitmap) {
+        bitmapPool.acquire(bitmap);
+    }
+
+    /**
+     * Notes that a cell stopped showing the bitmap of a poster.
+     *
+     * @param bitmap the bitmap that was shown.
+     */
+    public void release(Bitmap bitmap) {
+        bitmapPool.release(bitmap);
+    }
+
+    /**
+     * Turns the pause of the loads during flings on or off, e.g. to measure the jank it saves.
+     *
+     * @param pauseOnFling true to pause the loads while a fling settles, the default.
+     */
+    @VisibleForTesting
+    public void setPauseOnFling(boolean pauseOnFling) {
+        this.pauseOnFling = pauseOnFling;
+        if (!pauseOnFling && paused) {
+            paused = false;
+            picasso.resumeTag(tag);
+        }
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_SETTLING && pauseOnFling) {
+            if (!paused) {
+                paused = true;
+                picasso.pauseTag(tag);
+            }
+        } else if (paused) {
+            paused = false;
+            picasso.resumeTag(tag);
+        }
+    }
+
+    /**
+     * Cancels the loads of the grid, e.g. when it is destroyed.
+     */
+    public void cancel() {
+        picasso.cancelTag(tag);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+/**
+ * Snapshot of the counters of the memory and disk caches and of the bitmap pool of the
+ * {@link ImagePipeline}. The size of the memory cache is the heap used by the decoded posters.
+ */
+public class ImageCacheStats {
+    public final int memoryHits;
+    public final int memoryMisses;
+    public final int memoryEvictions;
+    public final int memorySizeBytes;
+    public final int memoryMaxSizeBytes;
+
+    public final int diskHits;
+    public final int diskMisses;
+    public final int diskWrites;
+    public final long diskSizeBytes;
+    public final long diskMaxSizeBytes;
+
+    public final int poolHits;
+    public final int poolMisses;
+    public final int poolSizeBytes;
+
+    public ImageCacheStats(int memoryHits, int memoryMisses, int memoryEvictions,
+                           int memorySizeBytes, int memoryMaxSizeBytes,
+                           int diskHits, int diskMisses, int diskWrites,
+                           long diskSizeBytes, long diskMaxSizeBytes,
+                           int poolHits, int poolMisses, int poolSizeBytes) {
+        this.memoryHits = memoryHits;
+        this.memoryMisses = memoryMisses;
+        this.memoryEvictions = memoryEvictions;
+        this.memorySizeBytes = memorySizeBytes;
+        this.memoryMaxSizeBytes = memoryMaxSizeBytes;
+        this.diskHits = diskHits;
+        this.diskMisses = diskMisses;
+        this.diskWrites = diskWrites;
+        this.diskSizeBytes = diskSizeBytes;
+        this.diskMaxSizeBytes = diskMaxSizeBytes;
+        this.poolHits = poolHits;
+        this.poolMisses = poolMisses;
+        this.poolSizeBytes = poolSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Memory: " + memoryHits + " hits, " + memoryMisses + " misses, "
+                + memoryEvictions + " evictions, " + memorySizeBytes + "/" + memoryMaxSizeBytes
+                + " bytes. Disk: " + diskHits + " hits, " + diskMisses + " misses, "
+                + diskWrites + " writes, " + diskSizeBytes + "/" + diskMaxSizeBytes + " bytes. "
+                + "Bitmap pool: " + poolHits + " reused, " + poolMisses + " allocated, "
+                + poolSizeBytes + " bytes free.";
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.util.Log;
+
+import com.jakewharton.picasso.OkHttp3Downloader;
+import com.packheng.popularmoviesstage1.TMDB.TMDBClient;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+/**
+ * Application wide image loading pipeline shared by the grid and the details screen: a
+ * {@link Picasso} instance backed by a memory cache sized as a fraction of the heap and by a
+ * disk cache with a fixed byte budget. The grid posters are decoded into bitmaps reused from a
+ * {@link PosterBitmapPool}.
+ */
+public class ImagePipeline implements ComponentCallbacks2 {
+    private static final String LOG_TAG = ImagePipeline.class.getSimpleName();
+
+    // Fractions of the heap given to the memory cache.
+    private static final int MEMORY_CACHE_HEAP_DIVIDER = 7;
+    private static final int LOW_RAM_MEMORY_CACHE_HEAP_DIVIDER = 12;
+    // Fraction of the memory cache size given to the free bitmaps of the pool.
+    private static final int BITMAP_POOL_MEMORY_CACHE_DIVIDER = 8;
+
+    private static final String DISK_CACHE_DIR_NAME = "poster_cache";
+    private static final long DISK_CACHE_SIZE_BYTES = 50L * 1024 * 1024;
+
+    private static ImagePipeline instance;
+
+    private final Picasso picasso;
+    private final PosterMemoryCache memoryCache;
+    private final PosterBitmapPool bitmapPool;
+    private final Cache diskCache;
+    private final OkHttpClient okHttpClient;
+
+    private ImagePipeline(Context context) {
+        int memoryCacheSize = calculateMemoryCacheSize(context);
+        bitmapPool = new PosterBitmapPool(memoryCacheSize / BITMAP_POOL_MEMORY_CACHE_DIVIDER);
+        memoryCache = new PosterMemoryCache(memoryCacheSize, bitmapPool);
+        diskCache = new Cache(new File(context.getCacheDir(), DISK_CACHE_DIR_NAME),
+                DISK_CACHE_SIZE_BYTES);
+        // Share the connection pool and the threads of the TMDB client, with a separate cache.
+        okHttpClient = TMDBClient.getInstance(context).getOkHttpClient().newBuilder()
+                .cache(diskCache)
+                .build();
+
+        picasso = new Picasso.Builder(context)
+                .memoryCache(memoryCache)
+                .downloader(new OkHttp3Downloader(okHttpClient))
+                .addRequestHandler(new PooledPosterRequestHandler(okHttpClient, bitmapPool))
+                .build();
+    }
+
+    public static synchronized ImagePipeline getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new ImagePipeline(appContext);
+            appContext.registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    public Picasso getPicasso() {
+        return picasso;
+    }
+
+    /**
+     * @return the pool of the bitmaps of the grid posters.
+     */
+    public PosterBitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * @return the {@link OkHttpClient} downloading the posters into the disk cache, e.g. to
+     * download posters without decoding them.
+     */
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    /**
+     * Returns the counters of the memory and disk caches and of the bitmap pool. Reading the size
+     * of the disk cache touches the disk, so this shouldn't be called on the main thread.
+     *
+     * @return a {@link ImageCacheStats}.
+     */
+    public ImageCacheStats getStats() {
+        long diskSize;
+        try {
+            diskSize = diskCache.size();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to read the size of the disk cache.", e);
+            diskSize = -1;
+        }
+        return new ImageCacheStats(memoryCache.hitCount(), memoryCache.missCount(),
+                memoryCache.evictionCount(), memoryCache.size(), memoryCache.maxSize(),
+                diskCache.hitCount(), diskCache.networkCount(), diskCache.writeSuccessCount(),
+                diskSize, diskCache.maxSize(), bitmapPool.hitCount(), bitmapPool.missCount(),
+                bitmapPool.size());
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE) {
+            memoryCache.clear();
+            bitmapPool.clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimToFraction(0.5f);
+            bitmapPool.clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        memoryCache.clear();
+        bitmapPool.clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Nothing to do.
+    }
+
+    /**
+     * Calculates the size of the memory cache as a fraction of the memory available to the app,
+     * smaller on low RAM devices.
+     *
+     * @param context the application context.
+     * @return the size of the memory cache in bytes.
+     */
+    private static int calculateMemoryCacheSize(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = am != null ? am.getMemoryClass()
+                : (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        boolean isLowRamDevice = am != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && am.isLowRamDevice();
+        int divider = isLowRamDevice ? LOW_RAM_MEMORY_CACHE_HEAP_DIVIDER
+                : MEMORY_CACHE_HEAP_DIVIDER;
+        return (int) (1024L * 1024L * memoryClassMb / divider);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import com.squareup.picasso.NetworkPolicy;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+import com.squareup.picasso.Transformation;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Picasso {@link RequestHandler} downloading the grid posters and decoding them into bitmaps
+ * taken from a {@link PosterBitmapPool}.
+ * <p>
+ * It handles the network requests without a target size, and without transformations other than
+ * a {@link CellSizeTransformation}: Picasso copies a bitmap to resize or transform it, so those
+ * are decoded by Picasso itself. The posters bigger than their cell are decoded at a fraction of
+ * their TMDB size, then scaled down and center-cropped into a pooled bitmap of the cell size, the
+ * size {@link PosterSizeResolver} targets; the others are decoded at their TMDB size. Either way,
+ * the posters of a grid all have the same size and their bitmaps can be reused. RGB_565 is only
+ * used, when requested, for JPEG posters, which are opaque.
+ */
+public class PooledPosterRequestHandler extends RequestHandler {
+    private static final String LOG_TAG = PooledPosterRequestHandler.class.getSimpleName();
+
+    private static final String SCHEME_HTTP = "http";
+    private static final String SCHEME_HTTPS = "https";
+    private static final String JPEG_MIME_TYPE = "image/jpeg";
+
+    private final Call.Factory client;
+    private final PosterBitmapPool pool;
+
+    /**
+     * @param client the client downloading the posters, usually backed by a disk cache.
+     * @param pool the pool the bitmaps are taken from.
+     */
+    public PooledPosterRequestHandler(Call.Factory client, PosterBitmapPool pool) {
+        this.client = client;
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        String scheme = data.uri.getScheme();
+        return (SCHEME_HTTP.equals(scheme) || SCHEME_HTTPS.equals(scheme))
+                && !data.hasSize()
+                && data.rotationDegrees == 0
+                && (data.transformations == null || data.transformations.isEmpty()
+                        || getCellSize(data) != null);
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder()
+                .url(request.uri.toString());
+        CacheControl cacheControl = createCacheControl(networkPolicy);
+        if (cacheControl != null) {
+            builder.cacheControl(cacheControl);
+        }
+
+        Response response = client.newCall(builder.build()).execute();
+        ResponseBody body = response.body();
+        byte[] bytes;
+        try {
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " for " + request.uri);
+            }
+            bytes = body.bytes();
+        } finally {
+            response.close();
+        }
+
+        Picasso.LoadedFrom loadedFrom = response.cacheResponse() != null
+                ? Picasso.LoadedFrom.DISK : Picasso.LoadedFrom.NETWORK;
+        return new Result(decode(bytes, request.config, getCellSize(request)), loadedFrom);
+    }
+
+    private Bitmap decode(byte[] bytes, Bitmap.Config requestedConfig,
+                          @Nullable CellSizeTransformation cellSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unable to decode the poster.");
+        }
+
+        Bitmap.Config config = requestedConfig == Bitmap.Config.RGB_565
+                && JPEG_MIME_TYPE.equals(options.outMimeType)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inJustDecodeBounds = false;
+        options.inPreferredConfig = config;
+        options.inMutable = true;
+        if (cellSize == null || !cellSize.isSmallerThan(options.outWidth, options.outHeight)) {
+            Bitmap bitmap = decodeInto(bytes, options,
+                    pool.get(options.outWidth, options.outHeight, config));
+            pool.registerReusable(bitmap);
+            return bitmap;
+        }
+
+        // Skip the rows and columns the cell doesn't need, then scale the rest down to the cell.
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                cellSize.getWidth(), cellSize.getHeight());
+        // Only bitmaps of the exact size can be reused before KitKat, which sampling changes.
+        Bitmap decoded = decodeInto(bytes, options, options.inSampleSize == 1
+                ? pool.get(options.outWidth, options.outHeight, config) : null);
+        Bitmap cellBitmap = pool.get(cellSize.getWidth(), cellSize.getHeight(), config);
+        if (cellBitmap == null) {
+            cellBitmap = Bitmap.createBitmap(cellSize.getWidth(), cellSize.getHeight(), config);
+        } else {
+            cellBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        CellSizeTransformation.drawCenterCrop(decoded, cellBitmap);
+        if (options.inSampleSize == 1) {
+            pool.put(decoded);
+        } else {
+            decoded.recycle();
+        }
+        pool.registerReusable(cellBitmap);
+        return cellBitmap;
+    }
+
+    private Bitmap decodeInto(byte[] bytes, BitmapFactory.Options options,
+                              @Nullable Bitmap reusable) throws IOException {
+        options.inBitmap = reusable;
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            Log.w(LOG_TAG, "Unable to reuse a bitmap.", e);
+            bitmap = null;
+        }
+        if (bitmap == null && options.inBitmap != null) {
+            // The pooled bitmap can't be reused for this poster.
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+        if (bitmap == null) {
+            throw new IOException("Unable to decode the poster.");
+        }
+        return bitmap;
+    }
+
+    /**
+     * Calculates the largest power of two by which a poster can be subsampled while still
+     * covering its cell.
+     *
+     * @param width width of the poster in pixels.
+     * @param height height of the poster in pixels.
+     * @param cellWidth width of the cell in pixels.
+     * @param cellHeight height of the cell in pixels.
+     * @return the sample size, 1 to decode every pixel.
+     */
+    @VisibleForTesting
+    static int calculateInSampleSize(int width, int height, int cellWidth, int cellHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= cellWidth && height / (sampleSize * 2) >= cellHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    @Nullable
+    private static CellSizeTransformation getCellSize(Request request) {
+        if (request.transformations == null || request.transformations.size() != 1) {
+            return null;
+        }
+        Transformation transformation = request.transformations.get(0);
+        return transformation instanceof CellSizeTransformation
+                ? (CellSizeTransformation) transformation : null;
+    }
+
+    private static CacheControl createCacheControl(int networkPolicy) {
+        if (networkPolicy == 0) {
+            return null;
+        }
+        if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+            return CacheControl.FORCE_CACHE;
+        }
+        CacheControl.Builder builder = new CacheControl.Builder();
+        if (!NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+            builder.noCache();
+        }
+        if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+            builder.noStore();
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Pool of poster bitmaps whose memory can be reused to decode other posters of the same size, so
+ * that scrolling a long grid doesn't allocate a new bitmap for each poster.
+ * <p>
+ * A bitmap decoded for reuse is put back in the pool once it is both out of the memory cache and
+ * no longer shown: the cells showing a bitmap hold it with {@link #acquire(Bitmap)} and
+ * {@link #release(Bitmap)}. A bitmap is never handed out by {@link #get(int, int, Bitmap.Config)}
+ * while a cell still holds it, whatever the order of the calls; extra or unknown releases are
+ * ignored. Bitmaps that were never shown, e.g. prefetched ones, aren't pooled, as they may still
+ * be on their way to a cell. See {@link ReuseTracker}. Thread safe.
+ */
+public class PosterBitmapPool {
+    private final int maxSizeBytes;
+    // Free bitmaps, least recently added first.
+    private final ArrayDeque<Bitmap> freeBitmaps = new ArrayDeque<>();
+    private int sizeBytes;
+    private int hitCount;
+    private int missCount;
+    // Tells when the bitmaps decoded for reuse are needed by no one anymore.
+    private final ReuseTracker<Bitmap> reuseTracker = new ReuseTracker<>();
+
+    /**
+     * @param maxSizeBytes maximum number of bytes of the free bitmaps.
+     */
+    public PosterBitmapPool(int maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Takes a free bitmap to decode a poster into.
+     *
+     * @param width width of the decoded poster.
+     * @param height height of the decoded poster.
+     * @param config config of the decoded poster.
+     * @return a bitmap of this exact size and config, or null if there's none.
+     */
+    @Nullable
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Iterator<Bitmap> iterator = freeBitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height
+                    && bitmap.getConfig() == config) {
+                iterator.remove();
+                sizeBytes -= getByteCount(bitmap);
+                hitCount++;
+                return bitmap;
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Marks a bitmap as decoded for reuse, so that it returns to the pool when it isn't needed
+     * anymore.
+     *
+     * @param bitmap a mutable bitmap.
+     */
+    public synchronized void registerReusable(Bitmap bitmap) {
+        reuseTracker.register(bitmap);
+    }
+
+    /**
+     * Gives back a bitmap used by no one, e.g. one a poster was decoded into before being
+     * scaled down.
+     *
+     * @param bitmap a mutable bitmap that wasn't registered as reusable.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        free(bitmap);
+    }
+
+    /**
+     * Notes that a cell shows a bitmap.
+     *
+     * @param bitmap the bitmap shown.
+     */
+    public synchronized void acquire(Bitmap bitmap) {
+        reuseTracker.acquire(bitmap);
+    }
+
+    /**
+     * Notes that a cell stopped showing a bitmap.
+     *
+     * @param bitmap the bitmap that was shown.
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (reuseTracker.release(bitmap)) {
+            free(bitmap);
+        }
+    }
+
+    /**
+     * Notes that a bitmap was removed from the memory cache.
+     *
+     * @param bitmap the removed bitmap.
+     */
+    public synchronized void onRemovedFromCache(Bitmap bitmap) {
+        if (reuseTracker.onRemovedFromCache(bitmap)) {
+            free(bitmap);
+        }
+    }
+
+    /**
+     * Drops the free bitmaps, e.g. when memory gets low.
+     */
+    public synchronized void clear() {
+        freeBitmaps.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized int size() {
+        return sizeBytes;
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    private void free(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            reuseTracker.unregister(bitmap);
+            return;
+        }
+        freeBitmaps.addLast(bitmap);
+        sizeBytes += getByteCount(bitmap);
+        while (sizeBytes > maxSizeBytes && !freeBitmaps.isEmpty()) {
+            Bitmap evicted = freeBitmaps.removeFirst();
+            sizeBytes -= getByteCount(evicted);
+            reuseTracker.unregister(evicted);
+        }
+    }
+
+    static int getByteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+}
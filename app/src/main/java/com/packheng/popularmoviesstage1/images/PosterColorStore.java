@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.support.annotation.WorkerThread;
+
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Persistent store of the dominant colors of the posters, keyed by TMDB poster path, so that a
+ * poster's color can be painted in its place before the poster itself is loaded. Each color is
+ * extracted once, from the first decoded copy of the poster.
+ */
+public class PosterColorStore {
+    private static final String PREFS_NAME = "poster_colors";
+
+    private static PosterColorStore instance;
+
+    private final SharedPreferences prefs;
+    private final Executor diskExecutor;
+
+    private PosterColorStore(SharedPreferences prefs, Executor diskExecutor) {
+        this.prefs = prefs;
+        this.diskExecutor = diskExecutor;
+    }
+
+    public static synchronized PosterColorStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new PosterColorStore(context.getApplicationContext()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                    AppExecutors.getInstance().diskIO());
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the color of a poster. The first call waits for the colors to be read from disk.
+     *
+     * @param posterPath the TMDB path of the poster.
+     * @return the color, or {@link DominantColor#NO_COLOR} if it isn't known.
+     */
+    @WorkerThread
+    public int getColor(String posterPath) {
+        if (posterPath == null || posterPath.isEmpty()) {
+            return DominantColor.NO_COLOR;
+        }
+        return prefs.getInt(posterPath, DominantColor.NO_COLOR);
+    }
+
+    /**
+     * Extracts and saves the color of a poster in the background, unless it is already known.
+     * Only a small thumbnail of the poster is made on the calling thread, so the bitmap can be
+     * reused as soon as this returns.
+     *
+     * @param posterPath the TMDB path of the poster.
+     * @param bitmap the decoded poster.
+     */
+    public void extractColor(final String posterPath, Bitmap bitmap) {
+        if (posterPath == null || posterPath.isEmpty()) {
+            return;
+        }
+        final int[] pixels = DominantColor.samplePixels(bitmap);
+        diskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (prefs.contains(posterPath)) {
+                    return;
+                }
+                int color = DominantColor.fromPixels(pixels);
+                if (color != DominantColor.NO_COLOR) {
+                    prefs.edit().putInt(posterPath, color).apply();
+                }
+            }
+        });
+    }
+}
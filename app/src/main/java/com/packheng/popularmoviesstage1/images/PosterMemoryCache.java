@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.LruCache;
+
+import com.squareup.picasso.Cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LRU memory cache of decoded posters for Picasso, bounded by the byte size of its bitmaps.
+ * The bitmaps removed from the cache are handed to a {@link PosterBitmapPool}.
+ */
+public class PosterMemoryCache implements Cache {
+
+    private final LruCache<String, Bitmap> lruCache;
+
+    /**
+     * @param maxSizeBytes maximum number of bytes of bitmaps held by the cache.
+     * @param bitmapPool the pool notified of the bitmaps removed from the cache.
+     */
+    public PosterMemoryCache(int maxSizeBytes, final PosterBitmapPool bitmapPool) {
+        lruCache = new LruCache<String, Bitmap>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return PosterBitmapPool.getByteCount(bitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                if (oldValue != newValue) {
+                    bitmapPool.onRemovedFromCache(oldValue);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Bitmap get(String key) {
+        return lruCache.get(key);
+    }
+
+    @Override
+    public void set(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null) {
+            return;
+        }
+        lruCache.put(key, bitmap);
+    }
+
+    @Override
+    public int size() {
+        return lruCache.size();
+    }
+
+    @Override
+    public int maxSize() {
+        return lruCache.maxSize();
+    }
+
+    @Override
+    public void clear() {
+        lruCache.evictAll();
+    }
+
+    @Override
+    public void clearKeyUri(String uri) {
+        // Picasso keys start with the uri, followed by the transformations on the next lines.
+        List<String> keysToRemove = new ArrayList<>();
+        for (String key : lruCache.snapshot().keySet()) {
+            int newLineIndex = key.indexOf('\n');
+            String keyUri = newLineIndex == -1 ? key : key.substring(0, newLineIndex);
+            if (keyUri.equals(uri)) {
+                keysToRemove.add(key);
+            }
+        }
+        for (String key : keysToRemove) {
+            lruCache.remove(key);
+        }
+    }
+
+    /**
+     * Trims the cache down to a fraction of its maximum size, e.g. when memory gets low.
+     *
+     * @param fraction fraction of the maximum size to keep, between 0 and 1.
+     */
+    public void trimToFraction(float fraction) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            lruCache.trimToSize((int) (lruCache.maxSize() * fraction));
+        } else {
+            lruCache.evictAll();
+        }
+    }
+
+    public int hitCount() {
+        return lruCache.hitCount();
+    }
+
+    public int missCount() {
+        return lruCache.missCount();
+    }
+
+    public int evictionCount() {
+        return lruCache.evictionCount();
+    }
+}
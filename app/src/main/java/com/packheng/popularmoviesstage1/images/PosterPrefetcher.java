@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import android.os.SystemClock;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import com.squareup.picasso.Picasso;
+
+/**
+ * {@link RecyclerView.OnScrollListener} loading into the memory cache the posters of the rows
+ * about to scroll into view, so that they are ready when their cells are bound.
+ * <p>
+ * The look-ahead follows the scroll direction and grows with the scroll speed. The posters are
+ * loaded with a low priority, and the ones loaded for the other direction are cancelled when the
+ * direction changes.
+ */
+public class PosterPrefetcher extends RecyclerView.OnScrollListener {
+
+    /**
+     * Gives the poster urls of the items of the grid.
+     */
+    public interface PosterUrlProvider {
+        int getItemCount();
+
+        /**
+         * @return the poster url of the item at the position, or an empty string if none.
+         */
+        String getPosterUrl(int position);
+    }
+
+    // The posters of the rows that would scroll into view during this time are loaded ahead.
+    private static final long LEAD_TIME_MILLIS = 500;
+    // Longer gaps between scroll events start a new gesture.
+    private static final long MAX_EVENT_INTERVAL_MILLIS = 100;
+
+    private final GridLayoutManager layoutManager;
+    private final GridPosterLoader posterLoader;
+    private final PosterUrlProvider posterUrlProvider;
+    private final int rowHeightPx;
+    private final Object tag = new Object();
+    private int lookAheadRows;
+    private int maxLookAheadRows;
+
+    // 1 when scrolling down, -1 when scrolling up, 0 before any scroll.
+    private int direction;
+    // Furthest position prefetched in the current direction.
+    private int prefetchedPosition = RecyclerView.NO_POSITION;
+    private long lastScrollTime;
+
+    /**
+     * @param layoutManager the {@link GridLayoutManager} of the RecyclerView.
+     * @param posterLoader the loader of the grid, so that the posters prefetched are the ones
+     *                     bound.
+     * @param posterUrlProvider gives the poster urls of the items.
+     * @param rowHeightPx height of a row of the grid in pixels.
+     * @param lookAheadRows number of rows prefetched when scrolling slowly.
+     * @param maxLookAheadRows number of rows prefetched when scrolling fast.
+     */
+    public PosterPrefetcher(GridLayoutManager layoutManager, GridPosterLoader posterLoader,
+                            PosterUrlProvider posterUrlProvider, int rowHeightPx,
+                            int lookAheadRows, int maxLookAheadRows) {
+        this.layoutManager = layoutManager;
+        this.posterLoader = posterLoader;
+        this.posterUrlProvider = posterUrlProvider;
+        this.rowHeightPx = Math.max(rowHeightPx, 1);
+        setLookAhead(lookAheadRows, maxLookAheadRows);
+    }
+
+    /**
+     * Tunes the number of rows prefetched.
+     *
+     * @param lookAheadRows number of rows prefetched when scrolling slowly.
+     * @param maxLookAheadRows number of rows prefetched when scrolling fast.
+     */
+    public void setLookAhead(int lookAheadRows, int maxLookAheadRows) {
+        this.lookAheadRows = Math.max(lookAheadRows, 0);
+        this.maxLookAheadRows = Math.max(maxLookAheadRows, this.lookAheadRows);
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        long interval = now - lastScrollTime;
+        lastScrollTime = now;
+        float velocityPxPerSecond = interval > 0 && interval <= MAX_EVENT_INTERVAL_MILLIS
+                ? Math.abs(dy) * 1000f / interval : 0f;
+
+        int newDirection = dy > 0 ? 1 : -1;
+        if (newDirection != direction) {
+            // The rows prefetched in the other direction are scrolling away.
+            cancel();
+            direction = newDirection;
+        }
+        prefetch(calculateLookAheadRows(velocityPxPerSecond));
+    }
+
+    /**
+     * Forgets what was prefetched, e.g. when the items of the grid are replaced. The posters
+     * being loaded aren't cancelled.
+     */
+    public void reset() {
+        prefetchedPosition = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Cancels the posters being prefetched.
+     */
+    public void cancel() {
+        posterLoader.getPicasso().cancelTag(tag);
+        reset();
+    }
+
+    private int calculateLookAheadRows(float velocityPxPerSecond) {
+        int rowsDuringLeadTime = Math.round(
+                velocityPxPerSecond * LEAD_TIME_MILLIS / 1000f / rowHeightPx);
+        return Math.min(lookAheadRows + rowsDuringLeadTime, maxLookAheadRows);
+    }
+
+    private void prefetch(int rows) {
+        int itemCount = posterUrlProvider.getItemCount();
+        int itemsAhead = rows * layoutManager.getSpanCount();
+        if (direction > 0) {
+            int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+            if (lastVisiblePosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            int from = Math.max(lastVisiblePosition, prefetchedPosition) + 1;
+            int to = Math.min(lastVisiblePosition + itemsAhead, itemCount - 1);
+            for (int position = from; position <= to; position++) {
+                fetch(position);
+                prefetchedPosition = position;
+            }
+        } else {
+            int firstVisiblePosition = layoutManager.findFirstVisibleItemPosition();
+            if (firstVisiblePosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            int from = prefetchedPosition == RecyclerView.NO_POSITION ? firstVisiblePosition - 1
+                    : Math.min(firstVisiblePosition, prefetchedPosition) - 1;
+            int to = Math.max(firstVisiblePosition - itemsAhead, 0);
+            for (int position = from; position >= to; position--) {
+                fetch(position);
+                prefetchedPosition = position;
+            }
+        }
+    }
+
+    private void fetch(int position) {
+        String posterUrl = posterUrlProvider.getPosterUrl(position);
+        if (!posterUrl.isEmpty()) {
+            // Not paused with the grid: these are the rows a fling lands on.
+            posterLoader.load(posterUrl)
+                    .priority(Picasso.Priority.LOW)
+                    .tag(tag)
+                    .fetch();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+/**
+ * Builds TMDB poster urls using the smallest poster size that covers the width, in pixels, at
+ * which the poster is displayed.
+ */
+public class PosterSizeResolver {
+    private static final String IMAGE_BASE_URL = "https://image.tmdb.org/t/p/";
+    private static final String ORIGINAL_SIZE = "original";
+    private static final String EMPTY_STRING = "";
+
+    // Widths of the poster sizes offered by TMDB, smallest first.
+    private static final int[] POSTER_WIDTHS = {92, 154, 185, 342, 500, 780};
+
+    // Height of the TMDB posters relative to their width.
+    private static final float POSTER_ASPECT_RATIO = 1.5f;
+
+    private final String size;
+    private final int targetWidthPx;
+    private final int targetHeightPx;
+
+    /**
+     * @param targetWidthPx width in pixels at which the posters are displayed.
+     */
+    public PosterSizeResolver(int targetWidthPx) {
+        this(targetWidthPx, Math.round(targetWidthPx * POSTER_ASPECT_RATIO));
+    }
+
+    /**
+     * @param targetWidthPx width in pixels at which the posters are displayed.
+     * @param targetHeightPx height in pixels at which the posters are displayed.
+     */
+    public PosterSizeResolver(int targetWidthPx, int targetHeightPx) {
+        this.size = selectSize(targetWidthPx);
+        this.targetWidthPx = targetWidthPx;
+        this.targetHeightPx = targetHeightPx;
+    }
+
+    /**
+     * @return the TMDB size used in the urls, e.g. "w342".
+     */
+    public String getSize() {
+        return size;
+    }
+
+    /**
+     * @return the width in pixels at which the posters are displayed.
+     */
+    public int getTargetWidth() {
+        return targetWidthPx;
+    }
+
+    /**
+     * @return the height in pixels at which the posters are displayed.
+     */
+    public int getTargetHeight() {
+        return targetHeightPx;
+    }
+
+    /**
+     * Builds the url of a poster.
+     *
+     * @param posterPath the poster path returned by TMDB, e.g. "/abc.jpg".
+     * @return the url of the poster, or an empty string if there's no poster path.
+     */
+    public String getPosterUrl(String posterPath) {
+        if (posterPath == null || posterPath.isEmpty()) {
+            return EMPTY_STRING;
+        }
+        return IMAGE_BASE_URL + size + posterPath;
+    }
+
+    /**
+     * Selects the smallest TMDB poster size at least as wide as the target width.
+     *
+     * @param targetWidthPx width in pixels at which the posters are displayed.
+     * @return a TMDB poster size, "original" if the target is wider than all the sizes.
+     */
+    public static String selectSize(int targetWidthPx) {
+        for (int width : POSTER_WIDTHS) {
+            if (width >= targetWidthPx) {
+                return "w" + width;
+            }
+        }
+        return ORIGINAL_SIZE;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Bookkeeping of {@link PosterBitmapPool}: tells when an item decoded for reuse, e.g. a bitmap,
+ * is needed by no one anymore.
+ * <p>
+ * Invariant: a registered item is reusable only once it is out of the memory cache and its
+ * display count, the number of {@link #acquire(Object)} not matched by a
+ * {@link #release(Object)} yet, is back to zero. Items that were never acquired aren't reusable,
+ * as they may still be on their way to a cell. Releases beyond the acquires and releases of
+ * unknown items are ignored, so that the count never goes below zero.
+ * <p>
+ * Items are held weakly and compared by identity, as bitmaps don't override equals(). Not thread
+ * safe: the pool synchronizes the calls.
+ *
+ * @param <T> the type of the items.
+ */
+class ReuseTracker<T> {
+    private final Set<T> registeredItems =
+            Collections.newSetFromMap(new WeakHashMap<T, Boolean>());
+    // Number of cells showing each item that was shown at least once.
+    private final Map<T, Integer> displayCounts = new WeakHashMap<>();
+    // Shown items that were removed from the memory cache.
+    private final Set<T> uncachedItems = Collections.newSetFromMap(new WeakHashMap<T, Boolean>());
+
+    /**
+     * Marks an item as decoded for reuse.
+     */
+    void register(T item) {
+        registeredItems.add(item);
+    }
+
+    /**
+     * Notes that a cell shows an item. Ignored for unregistered items.
+     */
+    void acquire(T item) {
+        if (!registeredItems.contains(item)) {
+            return;
+        }
+        Integer count = displayCounts.get(item);
+        displayCounts.put(item, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * Notes that a cell stopped showing an item.
+     *
+     * @return true if the item just became reusable.
+     */
+    boolean release(T item) {
+        Integer count = displayCounts.get(item);
+        if (count == null || count == 0) {
+            return false;
+        }
+        if (count == 1 && uncachedItems.remove(item)) {
+            displayCounts.remove(item);
+            return true;
+        }
+        displayCounts.put(item, count - 1);
+        return false;
+    }
+
+    /**
+     * Notes that an item was removed from the memory cache.
+     *
+     * @return true if the item just became reusable.
+     */
+    boolean onRemovedFromCache(T item) {
+        Integer count = displayCounts.get(item);
+        if (count == null) {
+            // Never shown, it may be about to be.
+            registeredItems.remove(item);
+            return false;
+        }
+        if (count == 0) {
+            displayCounts.remove(item);
+            return true;
+        }
+        uncachedItems.add(item);
+        return false;
+    }
+
+    /**
+     * Forgets an item that won't be reused, e.g. a recycled bitmap.
+     */
+    void unregister(T item) {
+        registeredItems.remove(item);
+        displayCounts.remove(item);
+        uncachedItems.remove(item);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.paging;
+
+/**
+ * Keeps track of the pages of a TMDB list that have been loaded so far.
+ */
+public class PageTracker {
+    public static final int FIRST_PAGE = 1;
+
+    private int lastLoadedPage;
+    private int totalPages;
+    private boolean loading;
+
+    public PageTracker() {
+        reset();
+    }
+
+    /**
+     * Forgets all the loaded pages, e.g. when the list is refreshed or the sort order changes.
+     */
+    public void reset() {
+        lastLoadedPage = 0;
+        totalPages = FIRST_PAGE;
+        loading = false;
+    }
+
+    /**
+     * @return the number of the last page loaded, 0 if none.
+     */
+    public int getLastLoadedPage() {
+        return lastLoadedPage;
+    }
+
+    /**
+     * @return the number of the next page to request.
+     */
+    public int getNextPage() {
+        return lastLoadedPage + 1;
+    }
+
+    /**
+     * @return true if there is at least one more page to load, according to the total number
+     * of pages reported by the last response.
+     */
+    public boolean hasMorePages() {
+        return lastLoadedPage < totalPages;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Marks the next page as being requested.
+     */
+    public void onPageRequested() {
+        loading = true;
+    }
+
+    /**
+     * Records a successfully loaded page.
+     *
+     * @param page the page number returned by TMDB.
+     * @param totalPages the total number of pages returned by TMDB.
+     */
+    public void onPageLoaded(int page, int totalPages) {
+        lastLoadedPage = page;
+        this.totalPages = totalPages;
+        loading = false;
+    }
+
+    /**
+     * Records a failed page request so that it can be retried on the next scroll.
+     */
+    public void onPageFailed() {
+        loading = false;
+    }
+}
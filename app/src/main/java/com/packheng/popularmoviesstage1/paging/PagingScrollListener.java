@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.paging;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link RecyclerView.OnScrollListener} that asks for the next page when the last visible item
+ * of a grid gets within a given number of rows of the end of the list, so that the next page is
+ * usually loaded before the user reaches the bottom of the grid.
+ */
+public class PagingScrollListener extends RecyclerView.OnScrollListener {
+
+    /**
+     * Called when more items should be loaded.
+     */
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    private final GridLayoutManager layoutManager;
+    private final PageTracker pageTracker;
+    private final int prefetchRows;
+    private final OnLoadMoreListener listener;
+
+    /**
+     * @param layoutManager the {@link GridLayoutManager} of the RecyclerView.
+     * @param pageTracker keeps track of the loaded pages.
+     * @param prefetchRows number of rows before the end of the list at which the next page is
+     *                     requested.
+     * @param listener called when the next page should be loaded.
+     */
+    public PagingScrollListener(GridLayoutManager layoutManager, PageTracker pageTracker,
+                                int prefetchRows, OnLoadMoreListener listener) {
+        this.layoutManager = layoutManager;
+        this.pageTracker = pageTracker;
+        this.prefetchRows = prefetchRows;
+        this.listener = listener;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // Only look ahead while scrolling down.
+        if (dy <= 0) {
+            return;
+        }
+        checkLoadMore();
+    }
+
+    /**
+     * Requests the next page if the end of the list is within the prefetch distance.
+     */
+    public void checkLoadMore() {
+        if (pageTracker.isLoading() || !pageTracker.hasMorePages()) {
+            return;
+        }
+
+        int itemCount = layoutManager.getItemCount();
+        int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+        int prefetchItems = prefetchRows * layoutManager.getSpanCount();
+
+        if (lastVisiblePosition != RecyclerView.NO_POSITION
+                && lastVisiblePosition + prefetchItems >= itemCount - 1) {
+            listener.onLoadMore();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.search;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index of the words of the titles, original and localized, and overviews of
+ * the movies, answering prefix queries as the user types: "blad run" finds Blade Runner, and
+ * "spiri" finds Sen to Chihiro no Kamikakushi by its English title.
+ * <p>
+ * The words are kept sorted, so that the words starting with a prefix are a range of the index.
+ * Each word points to the movies it appears in, numbered in the order they were added, so that a
+ * query only walks int arrays. Movies are added incrementally; a movie added again with another
+ * text is indexed again and its previous version is ignored. Thread safe.
+ */
+public class MovieSearchIndex {
+    // Upper bound of the words starting with a prefix.
+    private static final char MAX_CHAR = '\uffff';
+
+    // Postings by word.
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    // Movies by document number, null for the replaced versions.
+    private Movie[] documents = new Movie[64];
+    private int documentCount;
+    private final Map<Integer, Integer> documentsById = new HashMap<>();
+
+    /**
+     * Document numbers of the movies a word appears in, in increasing order. The lowest bit of
+     * each entry tells whether the word is in the title.
+     */
+    private static class Postings {
+        int[] entries = new int[2];
+        int size;
+
+        void add(int document, boolean inTitle) {
+            int entry = document << 1 | (inTitle ? 1 : 0);
+            if (size > 0 && entries[size - 1] >>> 1 == document) {
+                // Already in the title or the overview of the same movie.
+                entries[size - 1] |= entry;
+                return;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, 2 * size);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    /**
+     * Adds movies to the index, or updates them if they are already indexed.
+     *
+     * @param movies the movies.
+     */
+    public synchronized void addAll(Collection<Movie> movies) {
+        for (Movie movie : movies) {
+            add(movie);
+        }
+    }
+
+    private void add(Movie movie) {
+        Integer previousDocument = documentsById.get(movie.getId());
+        if (previousDocument != null) {
+            Movie previous = documents[previousDocument];
+            if (sameText(previous, movie)) {
+                documents[previousDocument] = movie;
+                return;
+            }
+            documents[previousDocument] = null;
+        }
+
+        if (documentCount == documents.length) {
+            documents = Arrays.copyOf(documents, 2 * documentCount);
+        }
+        int document = documentCount++;
+        documents[document] = movie;
+        documentsById.put(movie.getId(), document);
+        for (String word : tokenize(movie.getTitle())) {
+            postingsOf(word).add(document, true);
+        }
+        for (String word : tokenize(movie.getLocalizedTitle())) {
+            postingsOf(word).add(document, true);
+        }
+        for (String word : tokenize(movie.getPlotSynopsis())) {
+            postingsOf(word).add(document, false);
+        }
+    }
+
+    /**
+     * Finds the movies with words starting with every word of a query. Movies matching more
+     * words in their title come first, then the movies in the order they were added.
+     *
+     * @param query the query, e.g. as typed by the user.
+     * @param limit the maximum number of movies returned.
+     * @return the movies found.
+     */
+    public synchronized List<Movie> search(String query, int limit) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Number of query words matched so far by each movie, and how many in its title.
+        int[] matchedWords = new int[documentCount];
+        int[] titleWords = new int[documentCount];
+        int[] titleMarks = new int[documentCount];
+        for (int i = 0; i < queryWords.size(); i++) {
+            String prefix = queryWords.get(i);
+            for (Postings postings
+                    : words.subMap(prefix, true, prefix + MAX_CHAR, false).values()) {
+                for (int j = 0; j < postings.size; j++) {
+                    int document = postings.entries[j] >>> 1;
+                    if (matchedWords[document] == i) {
+                        matchedWords[document] = i + 1;
+                    }
+                    boolean inTitle = (postings.entries[j] & 1) != 0;
+                    if (inTitle && matchedWords[document] == i + 1
+                            && titleMarks[document] != i + 1) {
+                        titleMarks[document] = i + 1;
+                        titleWords[document]++;
+                    }
+                }
+            }
+        }
+
+        List<Movie> results = new ArrayList<>();
+        for (int inTitle = queryWords.size(); inTitle >= 0; inTitle--) {
+            for (int document = 0; document < documentCount; document++) {
+                if (matchedWords[document] == queryWords.size()
+                        && titleWords[document] == inTitle && documents[document] != null) {
+                    results.add(documents[document]);
+                    if (results.size() == limit) {
+                        return results;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of movies indexed.
+     */
+    public synchronized int size() {
+        return documentsById.size();
+    }
+
+    private Postings postingsOf(String word) {
+        Postings postings = words.get(word);
+        if (postings == null) {
+            postings = new Postings();
+            words.put(word, postings);
+        }
+        return postings;
+    }
+
+    private static boolean sameText(Movie a, Movie b) {
+        return equal(a.getTitle(), b.getTitle())
+                && equal(a.getLocalizedTitle(), b.getLocalizedTitle())
+                && equal(a.getPlotSynopsis(), b.getPlotSynopsis());
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Splits a text into lower case words without accents, e.g. "Ocean's" into "ocean" and "s".
+     *
+     * @param text the text, possibly null.
+     * @return the words, in order.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.sync;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Network interceptor counting the bytes received from the network, and refusing new requests
+ * once a budget is used up. Responses served by the HTTP cache aren't counted.
+ */
+public class DataBudget implements Interceptor {
+    private final long budgetBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    /**
+     * @param budgetBytes number of bytes that may be received.
+     */
+    public DataBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public boolean isExhausted() {
+        return usedBytes.get() >= budgetBytes;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (isExhausted()) {
+            throw new IOException("Data budget of " + budgetBytes + " bytes used up.");
+        }
+        Response response = chain.proceed(chain.request());
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder().body(new CountingResponseBody(body)).build();
+    }
+
+    private class CountingResponseBody extends ResponseBody {
+        private final ResponseBody body;
+        private final BufferedSource source;
+
+        CountingResponseBody(ResponseBody body) {
+            this.body = body;
+            this.source = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long bytesRead = super.read(sink, byteCount);
+                    if (bytesRead > 0) {
+                        usedBytes.addAndGet(bytesRead);
+                    }
+                    return bytesRead;
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
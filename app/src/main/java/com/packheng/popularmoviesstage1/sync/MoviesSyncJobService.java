@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.sync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.packheng.popularmoviesstage1.BuildConfig;
+import com.packheng.popularmoviesstage1.R;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.TMDB.TMDBClient;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.data.MoviesCache;
+import com.packheng.popularmoviesstage1.images.ImagePipeline;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+import com.packheng.popularmoviesstage1.utils.AppExecutors;
+
+import okhttp3.OkHttpClient;
+
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateBestSpanCount;
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateCellWidth;
+import static com.packheng.popularmoviesstage1.utils.GridUtils.calculateFirstScreenCount;
+
+/**
+ * Runs {@link MoviesSyncTask} on the network executor of {@link AppExecutors} when scheduled by
+ * {@link MoviesSyncScheduler}.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class MoviesSyncJobService extends JobService {
+    private static final String LOG_TAG = MoviesSyncJobService.class.getSimpleName();
+
+    private MoviesSyncTask syncTask;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        syncTask = createSyncTask();
+        final String[] endpoints = getEndpoints();
+        final MoviesSyncTask task = syncTask;
+        AppExecutors.getInstance().networkIO().execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean refreshed = task.run(endpoints);
+                if (BuildConfig.DEBUG) {
+                    Log.d(LOG_TAG, "Sync done, refreshed: " + refreshed);
+                }
+                jobFinished(params, !refreshed);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (syncTask != null) {
+            syncTask.cancel();
+        }
+        return true;
+    }
+
+    private MoviesSyncTask createSyncTask() {
+        Resources resources = getResources();
+        DataBudget dataBudget = new DataBudget(
+                resources.getInteger(R.integer.sync_data_budget_kb) * 1024L);
+
+        // Count what both clients receive from the network against the same budget.
+        TMDBClient tmdbClient = TMDBClient.getInstance(this);
+        OkHttpClient apiClient = tmdbClient.getOkHttpClient().newBuilder()
+                .addNetworkInterceptor(dataBudget)
+                .build();
+        OkHttpClient posterClient = ImagePipeline.getInstance(this).getOkHttpClient()
+                .newBuilder()
+                .addNetworkInterceptor(dataBudget)
+                .build();
+
+        // Same posters as the first screen of the grid, so that they are found in the cache.
+        DisplayMetrics metrics = resources.getDisplayMetrics();
+        int posterWidth = (int) resources.getDimension(R.dimen.main_movie_poster_width);
+        int posterHeight = (int) resources.getDimension(R.dimen.main_movie_poster_height);
+        int numberOfColumns = calculateBestSpanCount(metrics, posterWidth);
+        PosterSizeResolver posterSizeResolver = new PosterSizeResolver(
+                calculateCellWidth(metrics, posterWidth, numberOfColumns));
+
+        // The pages warmed up when the app opens are synced too.
+        int pagesPerList = 1 + resources.getInteger(R.integer.warm_up_next_pages);
+
+        final MoviesCache moviesCache = MoviesCache.getInstance(this);
+        return new MoviesSyncTask(tmdbClient.createApiService(apiClient), BuildConfig.ApiKey,
+                pagesPerList, posterClient, posterSizeResolver,
+                calculateFirstScreenCount(metrics, posterHeight, numberOfColumns), dataBudget,
+                new MoviesRequestCoordinator.OnPageFetchedListener() {
+                    @Override
+                    public void onPageFetched(String endpoint, int page, MoviesPage moviesPage) {
+                        moviesCache.saveNow(endpoint, page, moviesPage);
+                    }
+                });
+    }
+
+    /**
+     * @return the endpoints of the lists, the one selected in the settings first.
+     */
+    private String[] getEndpoints() {
+        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
+        String sortBy = sp.getString(getString(R.string.pref_sort_by_key),
+                getString(R.string.pref_sort_by_most_popular));
+        if (sortBy.equals(getString(R.string.pref_sort_by_top_rated))) {
+            return new String[] {TMDBEndpointInterface.TOP_RATED_ENDPOINT,
+                    TMDBEndpointInterface.MOST_POPULAR_ENDPOINT};
+        }
+        return new String[] {TMDBEndpointInterface.MOST_POPULAR_ENDPOINT,
+                TMDBEndpointInterface.TOP_RATED_ENDPOINT};
+    }
+}
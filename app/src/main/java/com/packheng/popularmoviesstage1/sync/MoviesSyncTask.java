@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.sync;
+
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+import retrofit2.Call;
+
+/**
+ * Refreshes the first pages of the movies lists and downloads the posters of the first screen of
+ * each list into the disk cache, so that opening the app only reads local data.
+ * <p>
+ * Runs on the calling thread. The clients should count what they receive with the given
+ * {@link DataBudget}: once it is used up, the remaining posters are skipped.
+ */
+public class MoviesSyncTask {
+    private static final String LOG_TAG = MoviesSyncTask.class.getSimpleName();
+    private static final int FIRST_PAGE = 1;
+
+    private final TMDBEndpointInterface apiService;
+    private final String apiKey;
+    private final int pagesPerList;
+    private final okhttp3.Call.Factory posterClient;
+    private final PosterSizeResolver posterSizeResolver;
+    private final int postersPerList;
+    private final DataBudget dataBudget;
+    private final MoviesRequestCoordinator.OnPageFetchedListener pageStore;
+    private volatile boolean cancelled;
+
+    /**
+     * @param apiService the TMDB service.
+     * @param apiKey the TMDB API key.
+     * @param pagesPerList number of pages refreshed for each list.
+     * @param posterClient downloads the posters into their disk cache.
+     * @param posterSizeResolver resolves the urls of the grid posters.
+     * @param postersPerList number of posters downloaded for each list.
+     * @param dataBudget the budget counted by the clients.
+     * @param pageStore saves the fetched pages before returning.
+     */
+    public MoviesSyncTask(TMDBEndpointInterface apiService, String apiKey, int pagesPerList,
+                          okhttp3.Call.Factory posterClient,
+                          PosterSizeResolver posterSizeResolver, int postersPerList,
+                          DataBudget dataBudget,
+                          MoviesRequestCoordinator.OnPageFetchedListener pageStore) {
+        this.apiService = apiService;
+        this.apiKey = apiKey;
+        this.pagesPerList = pagesPerList;
+        this.posterClient = posterClient;
+        this.posterSizeResolver = posterSizeResolver;
+        this.postersPerList = postersPerList;
+        this.dataBudget = dataBudget;
+        this.pageStore = pageStore;
+    }
+
+    /**
+     * Syncs the lists, in order.
+     *
+     * @param endpoints the TMDB endpoints of the lists, the one shown by the app first.
+     * @return false if a list couldn't be fetched and the sync should be retried.
+     */
+    @WorkerThread
+    public boolean run(String... endpoints) {
+        boolean refreshed = true;
+        List<String> posterUrls = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            for (int page = FIRST_PAGE; page < FIRST_PAGE + pagesPerList; page++) {
+                if (cancelled || dataBudget.isExhausted()) {
+                    // The budget is per sync: retrying early would only use more data.
+                    break;
+                }
+                MoviesPage moviesPage = fetchPage(endpoint, page);
+                if (moviesPage == null) {
+                    refreshed = false;
+                    break;
+                }
+                pageStore.onPageFetched(endpoint, page, moviesPage);
+                if (page == FIRST_PAGE) {
+                    addPosterUrls(moviesPage, posterUrls);
+                }
+                if (page >= moviesPage.getTotalPages()) {
+                    break;
+                }
+            }
+        }
+
+        for (String posterUrl : posterUrls) {
+            if (cancelled || dataBudget.isExhausted()) {
+                break;
+            }
+            downloadPoster(posterUrl);
+        }
+        return refreshed;
+    }
+
+    /**
+     * Stops the sync as soon as possible, e.g. when the conditions of the job aren't met anymore.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private MoviesPage fetchPage(String endpoint, int page) {
+        Call<MoviesPage> call = TMDBEndpointInterface.TOP_RATED_ENDPOINT.equals(endpoint)
+                ? apiService.topRatedMovies(apiKey, page)
+                : apiService.popularMovies(apiKey, page);
+        try {
+            return call.execute().body();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to sync page " + page + " of " + endpoint, e);
+            return null;
+        }
+    }
+
+    private void addPosterUrls(MoviesPage moviesPage, List<String> posterUrls) {
+        List<Movie> movies = moviesPage.getMovies();
+        if (movies == null) {
+            return;
+        }
+        int count = Math.min(postersPerList, movies.size());
+        for (int i = 0; i < count; i++) {
+            String posterUrl = posterSizeResolver.getPosterUrl(movies.get(i).getPosterPath());
+            if (!posterUrl.isEmpty()) {
+                posterUrls.add(posterUrl);
+            }
+        }
+    }
+
+    /**
+     * Reads a poster to the end, which stores it in the disk cache of the client, without
+     * decoding it.
+     */
+    private void downloadPoster(String posterUrl) {
+        Request request = new Request.Builder().url(posterUrl).build();
+        Response response = null;
+        try {
+            response = posterClient.newCall(request).execute();
+            ResponseBody body = response.body();
+            if (response.isSuccessful() && body != null) {
+                body.source().readAll(Okio.blackhole());
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Unable to download " + posterUrl, e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Application wide executors, so that the work of the whole app shares the same few threads.
+ */
+public class AppExecutors {
+
+    private static AppExecutors instance;
+
+    private static final int NETWORK_THREAD_COUNT = 3;
+
+    private final Executor diskIO;
+    private final Executor networkIO;
+    private final Executor mapping;
+    private final Executor mainThread;
+
+    public AppExecutors(Executor diskIO, Executor networkIO, Executor mapping,
+                        Executor mainThread) {
+        this.diskIO = diskIO;
+        this.networkIO = networkIO;
+        this.mapping = mapping;
+        this.mainThread = mainThread;
+    }
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors(Executors.newSingleThreadExecutor(),
+                    Executors.newFixedThreadPool(NETWORK_THREAD_COUNT),
+                    Executors.newSingleThreadExecutor(), new MainThreadExecutor());
+        }
+        return instance;
+    }
+
+    /**
+     * @return a single thread executor for disk reads and writes.
+     */
+    public Executor diskIO() {
+        return diskIO;
+    }
+
+    /**
+     * @return a small pool for blocking network work done outside of Retrofit and Picasso, e.g.
+     * the background sync.
+     */
+    public Executor networkIO() {
+        return networkIO;
+    }
+
+    /**
+     * @return a single thread executor preparing data for display, in submission order.
+     */
+    public Executor mapping() {
+        return mapping;
+    }
+
+    /**
+     * @return an executor posting to the main thread.
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mainThreadHandler.post(command);
+        }
+    }
+}
@@ -16,59 +16,189 @@
 
 package com.packheng.popularmoviesstage1.utils;
 
-import android.util.Log;
-
-import java.text.DateFormat;
-import java.util.Date;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.DateFormatSymbols;
 import java.util.Locale;
-import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Helper class with methods for converting {@link Date} to {@link String} and vice versa.
+ * Helper class with methods for converting TMDB date strings to and from epoch days, the number
+ * of days since 1970-01-01. The methods don't use {@link java.text.SimpleDateFormat} and are
+ * safe to call from several threads.
  */
 public class DateToStringUtils {
-    private static final String LOG_TAG = DateToStringUtils.class.getSimpleName();
+
+    /** Returned by {@link #parseEpochDay(String)} for empty or malformed date strings. */
+    public static final int INVALID_DATE = Integer.MIN_VALUE;
+
+    private static final String EMPTY_STRING = "";
+    private static final int ISO_DATE_LENGTH = 10;
+    private static final int DAYS_PER_400_YEARS = 146097;
+    // Days from 0000-03-01 to 1970-01-01.
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    // Abbreviated month names, per locale.
+    private static final ConcurrentMap<Locale, String[]> SHORT_MONTHS = new ConcurrentHashMap<>();
 
     private DateToStringUtils() {}
 
     /**
-     * Converts a date string to a {@link java.util.Date} object with UTC time zone.
-     * Returns null if the {@param s} is empty.
+     * Parses a date string in the ISO-8601 format "yyyy-MM-dd" used by TMDB.
      *
      * @param s a date String.
-     * @return a {@link java.util.Date} object.
+     * @return the number of days since 1970-01-01, or {@link #INVALID_DATE} if {@param s} is
+     * null, empty or not a valid date.
+     */
+    public static int parseEpochDay(String s) {
+        if (s == null || s.length() != ISO_DATE_LENGTH
+                || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return INVALID_DATE;
+        }
+
+        int year = parseDigits(s, 0, 4);
+        int month = parseDigits(s, 5, 7);
+        int day = parseDigits(s, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID_DATE;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Returns a date string with the format "MMM dd, yyyy" in English, e.g. "Oct 03, 2018".
+     *
+     * @param epochDay number of days since 1970-01-01.
+     * @return a String, empty if {@param epochDay} is {@link #INVALID_DATE}.
+     */
+    public static String formatEpochDay(int epochDay) {
+        return formatEpochDay(epochDay, Locale.ENGLISH);
+    }
+
+    /**
+     * Returns a date string with the format "MMM dd, yyyy", with the month abbreviated in the
+     * given locale.
+     *
+     * @param epochDay number of days since 1970-01-01.
+     * @param locale locale of the month name.
+     * @return a String, empty if {@param epochDay} is {@link #INVALID_DATE}.
+     */
+    public static String formatEpochDay(int epochDay, Locale locale) {
+        if (epochDay == INVALID_DATE) {
+            return EMPTY_STRING;
+        }
+
+        int[] date = toDate(epochDay);
+        int year = date[0];
+        int month = date[1];
+        int day = date[2];
+
+        StringBuilder sb = new StringBuilder(12);
+        sb.append(getShortMonths(locale)[month - 1]).append(' ');
+        if (day < 10) {
+            sb.append('0');
+        }
+        sb.append(day).append(", ").append(year);
+        return sb.toString();
+    }
+
+    /**
+     * Returns a date string in the ISO-8601 format "yyyy-MM-dd" used by TMDB, the inverse of
+     * {@link #parseEpochDay(String)}.
+     *
+     * @param epochDay number of days since 1970-01-01.
+     * @return a String, empty if {@param epochDay} is {@link #INVALID_DATE} or before year 0.
      */
-    public static Date stringToDate(String s) {
-        SimpleDateFormat dateFormatUTC = new SimpleDateFormat(
-                "yyyy-MM-dd" /* ISO-8601 format */,
-                Locale.ENGLISH);
-        dateFormatUTC.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        if (s.isEmpty()) {
-            return null;
+    public static String formatIsoDate(int epochDay) {
+        if (epochDay == INVALID_DATE) {
+            return EMPTY_STRING;
         }
 
-        java.util.Date date = new java.util.Date();
-        try {
-            date = dateFormatUTC.parse(s);
-        } catch (ParseException e) {
-            Log.e(LOG_TAG, "Unable to parse the string parameter to a Date.");
-            e.printStackTrace();
+        int[] date = toDate(epochDay);
+        if (date[0] < 0 || date[0] > 9999) {
+            return EMPTY_STRING;
         }
-        return date;
+        StringBuilder sb = new StringBuilder(ISO_DATE_LENGTH);
+        appendDigits(sb, date[0], 4).append('-');
+        appendDigits(sb, date[1], 2).append('-');
+        appendDigits(sb, date[2], 2);
+        return sb.toString();
     }
 
     /**
-     * Returns a date string from a {@link Date} using the local {@link DateFormat} with the format
-     * "MMM dd, yyyy".
+     * Converts an epoch day to a date, counting years from March so leap days come last.
      *
-     * @param date a {@link Date} object.
-     * @return a String.
+     * @return the year, the month from 1 to 12 and the day of the month.
      */
-    public static String formatDateToString(Date date) {
-        DateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.ENGLISH);;
-        return date != null ? df.format(date) : "";
+    private static int[] toDate(int epochDay) {
+        int days = epochDay + DAYS_0000_TO_1970;
+        int era = (days >= 0 ? days : days - DAYS_PER_400_YEARS + 1) / DAYS_PER_400_YEARS;
+        int dayOfEra = days - era * DAYS_PER_400_YEARS;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return new int[] {year, month, day};
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, int value, int digits) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < digits; i++) {
+            sb.append('0');
+        }
+        return sb.append(s);
+    }
+
+    private static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @return the number made of the digits of s between start (inclusive) and end (exclusive),
+     * or -1 if one of them isn't a digit.
+     */
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean isLeapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return isLeapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static String[] getShortMonths(Locale locale) {
+        String[] shortMonths = SHORT_MONTHS.get(locale);
+        if (shortMonths == null) {
+            shortMonths = DateFormatSymbols.getInstance(locale).getShortMonths();
+            String[] previous = SHORT_MONTHS.putIfAbsent(locale, shortMonths);
+            if (previous != null) {
+                shortMonths = previous;
+            }
+        }
+        return shortMonths;
     }
 }
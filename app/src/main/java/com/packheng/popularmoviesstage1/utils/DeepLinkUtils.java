@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import java.util.List;
+
+/**
+ * Helper methods to read the links to a movie, either TMDB web links such as
+ * "https://www.themoviedb.org/movie/550-fight-club" or app links such as
+ * "popularmovies://movie/550".
+ */
+public class DeepLinkUtils {
+
+    /** Returned when a link doesn't hold a movie id. */
+    public static final int INVALID_MOVIE_ID = -1;
+
+    // The host of the app links and the first path segment of the web links.
+    private static final String MOVIE = "movie";
+
+    private DeepLinkUtils() {}
+
+    /**
+     * Reads the TMDB id of a movie from a link. The id is read from the segment right after
+     * "movie", so that links to a page of the movie such as
+     * "https://www.themoviedb.org/movie/550-fight-club/reviews" open the movie too.
+     *
+     * @param host the host of the link.
+     * @param pathSegments the decoded segments of the path of the link.
+     * @return the TMDB id, or {@link #INVALID_MOVIE_ID} if the link doesn't hold one.
+     */
+    public static int parseMovieId(String host, List<String> pathSegments) {
+        int index;
+        if (MOVIE.equals(host)) {
+            index = 0;
+        } else if (!pathSegments.isEmpty() && MOVIE.equals(pathSegments.get(0))) {
+            index = 1;
+        } else {
+            return INVALID_MOVIE_ID;
+        }
+        return index < pathSegments.size() ? parseMovieId(pathSegments.get(index))
+                : INVALID_MOVIE_ID;
+    }
+
+    /**
+     * Reads the TMDB id of a movie from a segment of the path of a link, made of the id
+     * optionally followed by a dash and the title.
+     *
+     * @param pathSegment the segment, e.g. "550-fight-club" or "550".
+     * @return the TMDB id, or {@link #INVALID_MOVIE_ID} if the segment doesn't start with one.
+     */
+    public static int parseMovieId(String pathSegment) {
+        if (pathSegment == null) {
+            return INVALID_MOVIE_ID;
+        }
+        int end = 0;
+        // At most 9 digits, so that the id fits in an int.
+        while (end < pathSegment.length() && end < 9
+                && pathSegment.charAt(end) >= '0' && pathSegment.charAt(end) <= '9') {
+            end++;
+        }
+        if (end == 0 || (end < pathSegment.length() && pathSegment.charAt(end) != '-')) {
+            return INVALID_MOVIE_ID;
+        }
+        return Integer.parseInt(pathSegment.substring(0, end));
+    }
+}
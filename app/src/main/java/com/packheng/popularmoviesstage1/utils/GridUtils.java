@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import android.util.DisplayMetrics;
+
+/**
+ * Helper methods to lay out the grid of posters, shared by the grid and the background sync so
+ * that both request the same poster urls.
+ */
+public class GridUtils {
+
+    private GridUtils() {}
+
+    /**
+     * Calculates best number of columns in the grid view depending of the poster width
+     * and the screen width.
+     *
+     * @param metrics the metrics of the display.
+     * @param posterWidth Width of the poster in pixels.
+     * @return number of columns.
+     */
+    public static int calculateBestSpanCount(DisplayMetrics metrics, int posterWidth) {
+        float screenWidth = metrics.widthPixels;
+        return Math.round(screenWidth / posterWidth);
+    }
+
+    /**
+     * Calculates the width in pixels at which a poster is displayed in the grid: the poster
+     * width, unless the columns are narrower than that.
+     *
+     * @param metrics the metrics of the display.
+     * @param posterWidth Width of the poster in pixels.
+     * @param numberOfColumns number of columns in the grid view.
+     * @return width of a poster in pixels.
+     */
+    public static int calculateCellWidth(DisplayMetrics metrics, int posterWidth,
+                                         int numberOfColumns) {
+        int columnWidth = metrics.widthPixels / Math.max(numberOfColumns, 1);
+        return Math.min(posterWidth, columnWidth);
+    }
+
+    /**
+     * Calculates the number of posters visible in the grid before any scrolling.
+     *
+     * @param metrics the metrics of the display.
+     * @param posterHeight Height of the poster in pixels.
+     * @param numberOfColumns number of columns in the grid view.
+     * @return number of posters.
+     */
+    public static int calculateFirstScreenCount(DisplayMetrics metrics, int posterHeight,
+                                                int numberOfColumns) {
+        int rows = (metrics.heightPixels + posterHeight - 1) / Math.max(posterHeight, 1);
+        return rows * Math.max(numberOfColumns, 1);
+    }
+}
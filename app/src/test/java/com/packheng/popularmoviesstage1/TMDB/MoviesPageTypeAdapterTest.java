@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the streaming decoding of {@link MoviesPageTypeAdapter} with the reflective Gson
+ * decoding of {@link TMDBResponse}.
+ */
+public class MoviesPageTypeAdapterTest {
+
+    private static final String PAGE_JSON = "{\"page\":2,\"total_results\":19832,"
+            + "\"total_pages\":992,\"results\":["
+            + "{\"vote_count\":1520,\"id\":335983,\"video\":false,\"vote_average\":6.6,"
+            + "\"title\":\"Venom\",\"popularity\":395.54,\"poster_path\":\"/2uNW4WbgBXL25BAbXGLnLqX71Sw.jpg\","
+            + "\"original_language\":\"en\",\"original_title\":\"Venom\",\"genre_ids\":[878,28,80,28,53,27],"
+            + "\"backdrop_path\":\"/VuukZLgaCrho2Ar8Scl9HtV3yD.jpg\",\"adult\":false,"
+            + "\"overview\":\"When Eddie Brock acquires the powers of a symbiote...\","
+            + "\"release_date\":\"2018-10-03\"},"
+            + "{\"vote_count\":118,\"id\":424139,\"video\":false,\"vote_average\":6.8,"
+            + "\"title\":\"Halloween\",\"popularity\":188.2,\"poster_path\":\"/bXs0zkv2iGVViZEy78teg2ycDBm.jpg\","
+            + "\"original_language\":\"en\",\"original_title\":\"Halloween\",\"genre_ids\":[27,53],"
+            + "\"backdrop_path\":\"/tZ358Wk4BnOc4FjdJsiL8n4KDp1.jpg\",\"adult\":false,"
+            + "\"overview\":\"Laurie Strode comes to her final confrontation with Michael Myers.\","
+            + "\"release_date\":\"2018-10-18\",\"unknown_field\":{\"nested\":[1,2,3]}}"
+            + "]}";
+
+    private final Gson streamingGson = MoviesPageTypeAdapter.createGson();
+
+    @Test
+    public void read_matchesReflectiveGsonDecoding() {
+        TMDBResponse response = new Gson().fromJson(PAGE_JSON, TMDBResponse.class);
+        MoviesPage moviesPage = streamingGson.fromJson(PAGE_JSON, MoviesPage.class);
+
+        assertEquals(response.getPage(), moviesPage.getPage());
+        assertEquals(response.getTotalPages(), moviesPage.getTotalPages());
+        assertEquals(response.getTotalResults(), moviesPage.getTotalResults());
+        assertEquals(toMovies(response.getResults()), moviesPage.getMovies());
+    }
+
+    @Test
+    public void read_nullValuesBecomeEmptyStrings() {
+        String json = "{\"page\":1,\"total_pages\":1,\"results\":[{\"id\":7,"
+                + "\"original_title\":\"No poster\",\"poster_path\":null,\"overview\":null,"
+                + "\"vote_average\":0,\"release_date\":null},null]}";
+
+        MoviesPage moviesPage = streamingGson.fromJson(json, MoviesPage.class);
+
+        assertEquals(1, moviesPage.getMovies().size());
+        Movie movie = moviesPage.getMovies().get(0);
+        assertEquals(7, movie.getId());
+        assertEquals("No poster", movie.getTitle());
+        assertEquals("", movie.getPosterPath());
+        assertEquals("", movie.getPlotSynopsis());
+        assertEquals("", movie.getReleaseDate());
+    }
+
+    @Test
+    public void write_roundTrips() {
+        MoviesPage moviesPage = streamingGson.fromJson(PAGE_JSON, MoviesPage.class);
+
+        String json = streamingGson.toJson(moviesPage, MoviesPage.class);
+        MoviesPage readBack = streamingGson.fromJson(json, MoviesPage.class);
+
+        assertEquals(moviesPage.getPage(), readBack.getPage());
+        assertEquals(moviesPage.getTotalPages(), readBack.getTotalPages());
+        assertEquals(moviesPage.getTotalResults(), readBack.getTotalResults());
+        assertEquals(moviesPage.getMovies(), readBack.getMovies());
+    }
+
+    /**
+     * Maps the results the way MainActivity used to, before the streaming decoding.
+     */
+    private static List<Movie> toMovies(List<TMDBResult> results) {
+        List<Movie> movies = new ArrayList<>();
+        for (TMDBResult result : results) {
+            int[] genreIds = new int[result.getGenreIds().size()];
+            for (int i = 0; i < genreIds.length; i++) {
+                genreIds[i] = result.getGenreIds().get(i);
+            }
+            movies.add(new Movie(result.getId(), result.getOriginalTitle(),
+                    result.getPosterPath(), result.getOverview(), result.getVoteAverage(),
+                    result.getReleaseDate(), result.getVoteCount(), result.getPopularity(),
+                    result.getOriginalLanguage(), result.isAdult(), genreIds, result.getTitle()));
+        }
+        return movies;
+    }
+}
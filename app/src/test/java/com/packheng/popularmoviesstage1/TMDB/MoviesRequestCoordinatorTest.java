@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.TMDB;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface.MOST_POPULAR_ENDPOINT;
+import static com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface.TOP_RATED_ENDPOINT;
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.direct;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MoviesRequestCoordinatorTest {
+
+    private static final String PAGE_JSON = "{\"page\":1,\"total_results\":1,\"total_pages\":1,"
+            + "\"results\":[{\"id\":335983,\"original_title\":\"Venom\",\"vote_average\":6.6,"
+            + "\"poster_path\":\"/2uNW4WbgBXL25BAbXGLnLqX71Sw.jpg\",\"overview\":\"Overview\","
+            + "\"release_date\":\"2018-10-03\"}]}";
+    private static final long TIMEOUT_SECONDS = 5;
+    // How long a cancelled request is given to (wrongly) notify its listener.
+    private static final long CANCELLED_WAIT_MILLIS = 500;
+
+    private MockWebServer server;
+    private MoviesRequestCoordinator coordinator;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(
+                        GsonConverterFactory.create(MoviesPageTypeAdapter.createGson()))
+                .callbackExecutor(direct())
+                .build();
+        coordinator = new MoviesRequestCoordinator(
+                retrofit.create(TMDBEndpointInterface.class), "key");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void request_identicalRequestsShareOneCall() throws Exception {
+        server.enqueue(delayedPage());
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.request(MOST_POPULAR_ENDPOINT, 1, first);
+        coordinator.request(MOST_POPULAR_ENDPOINT, 1, second);
+        assertEquals(1, coordinator.getInFlightCount());
+
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertEquals(335983, first.moviesPage.getMovies().get(0).getId());
+        assertEquals(first.moviesPage, second.moviesPage);
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/movie/popular?api_key=key&page=1", server.takeRequest().getPath());
+        assertEquals(0, coordinator.getInFlightCount());
+    }
+
+    @Test
+    public void request_differentPagesAreNotShared() throws Exception {
+        server.enqueue(delayedPage());
+        server.enqueue(delayedPage());
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.request(MOST_POPULAR_ENDPOINT, 1, first);
+        coordinator.request(MOST_POPULAR_ENDPOINT, 2, second);
+        assertEquals(2, coordinator.getInFlightCount());
+
+        assertTrue(first.await());
+        assertTrue(second.await());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void request_afterCompletionIssuesNewCall() throws Exception {
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        server.enqueue(new MockResponse().setBody(PAGE_JSON));
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+
+        coordinator.request(TOP_RATED_ENDPOINT, 1, first);
+        assertTrue(first.await());
+        coordinator.request(TOP_RATED_ENDPOINT, 1, second);
+        assertTrue(second.await());
+
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void request_httpErrorNotifiesFailure() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        RecordingListener listener = new RecordingListener();
+
+        coordinator.request(MOST_POPULAR_ENDPOINT, 1, listener);
+
+        assertTrue(listener.await());
+        assertTrue(listener.failed);
+    }
+
+    @Test
+    public void cancelAll_cancelsTheGivenListsOnly() throws Exception {
+        server.enqueue(delayedPage());
+        server.enqueue(delayedPage());
+        RecordingListener popular = new RecordingListener();
+        RecordingListener topRated = new RecordingListener();
+
+        coordinator.request(MOST_POPULAR_ENDPOINT, 1, popular);
+        coordinator.request(TOP_RATED_ENDPOINT, 1, topRated);
+        assertEquals(Collections.<MoviesRequestCoordinator.OnPageListener>singletonList(popular),
+                coordinator.cancelAll(Collections.singleton(MOST_POPULAR_ENDPOINT)));
+        assertEquals(1, coordinator.getInFlightCount());
+
+        assertTrue(topRated.await());
+        assertFalse(topRated.failed);
+        assertFalse(popular.latch.await(CANCELLED_WAIT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    // A page answered late enough for the other requests of a test to be issued meanwhile.
+    private static MockResponse delayedPage() {
+        return new MockResponse().setBody(PAGE_JSON).setBodyDelay(200, TimeUnit.MILLISECONDS);
+    }
+
+    private static class RecordingListener implements MoviesRequestCoordinator.OnPageListener {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile MoviesPage moviesPage;
+        volatile boolean failed;
+
+        @Override
+        public void onPageLoaded(MoviesPage moviesPage) {
+            this.moviesPage = moviesPage;
+            latch.countDown();
+        }
+
+        @Override
+        public void onPageFailed() {
+            failed = true;
+            latch.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+}
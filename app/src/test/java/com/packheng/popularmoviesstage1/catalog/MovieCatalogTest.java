@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.catalog;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.packheng.popularmoviesstage1.catalog.MovieQuery.SortColumn.POPULARITY;
+import static com.packheng.popularmoviesstage1.catalog.MovieQuery.SortColumn.RELEASE_DATE;
+import static com.packheng.popularmoviesstage1.catalog.MovieQuery.SortColumn.VOTE_AVERAGE;
+import static com.packheng.popularmoviesstage1.catalog.MovieQuery.SortColumn.VOTE_COUNT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovieCatalogTest {
+
+    private MovieCatalog catalog;
+
+    @Before
+    public void setUp() {
+        catalog = new MovieCatalog();
+        catalog.addAll(Arrays.asList(
+                movie(1, "2018-10-03", 395.5, 1520, 6.6, "en", false, 878, 28),
+                movie(2, "2018-10-03", 512.1, 980, 7.1, "en", false, 35),
+                movie(3, "1997-05-07", 20.4, 3300, 7.9, "fr", false, 878, 18),
+                movie(4, "", 5.0, 10, 5.0, "ja", false),
+                movie(5, "2018-11-01", 1.0, 2, 4.0, "en", true, 878)));
+    }
+
+    @Test
+    public void query_sortsOnEveryKeyInTurn() {
+        MovieQuery newest = new MovieQuery.Builder()
+                .sortBy(RELEASE_DATE, true)
+                .sortBy(POPULARITY, true)
+                .build();
+
+        // The adult movie is left out, the unknown date is the oldest.
+        assertEquals(Arrays.asList(2, 1, 3, 4), ids(catalog.query(newest, 10)));
+    }
+
+    @Test
+    public void query_filtersOnVotesAndLanguage() {
+        MovieQuery query = new MovieQuery.Builder()
+                .sortBy(VOTE_COUNT, false)
+                .minVoteCount(100)
+                .language("en")
+                .build();
+
+        assertEquals(Arrays.asList(2, 1), ids(catalog.query(query, 10)));
+        assertTrue(catalog.query(new MovieQuery.Builder().language("ko").build(), 10).isEmpty());
+    }
+
+    @Test
+    public void query_keepsMoviesOfAnyOfTheGenres() {
+        MovieQuery scienceFiction = new MovieQuery.Builder().genres(878).build();
+        MovieQuery comedyOrDrama = new MovieQuery.Builder().genres(35, 18).build();
+
+        assertEquals(Arrays.asList(1, 3), ids(catalog.query(scienceFiction, 10)));
+        assertEquals(Arrays.asList(2, 3), ids(catalog.query(comedyOrDrama, 10)));
+        assertTrue(catalog.query(new MovieQuery.Builder().genres(10402).build(), 10).isEmpty());
+    }
+
+    @Test
+    public void query_withoutSortKeysKeepsTheOrderOfAddition() {
+        MovieQuery query = new MovieQuery.Builder().includeAdult(true).build();
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids(catalog.query(query, 10)));
+        assertEquals(Arrays.asList(1, 2), ids(catalog.query(query, 2)));
+    }
+
+    @Test
+    public void addAll_replacesTheRowOfAMovie() {
+        catalog.addAll(Collections.singletonList(movie(3, "1997-05-07", 20.4, 10, 7.9, "fr",
+                false, 18)));
+        MovieQuery query = new MovieQuery.Builder().sortBy(VOTE_COUNT, true).build();
+
+        assertEquals(5, catalog.size());
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(catalog.query(query, 10)));
+        assertEquals(Collections.singletonList(1),
+                ids(catalog.query(new MovieQuery.Builder().genres(878).build(), 10)));
+    }
+
+    @Test
+    public void query_sortsLargeCatalogsLikeAComparator() {
+        MovieCatalog largeCatalog = new MovieCatalog();
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int id = 0; id < 10000; id++) {
+            // Few distinct vote averages, so that the second key matters.
+            movies.add(movie(id, "2018-01-01", random.nextInt(1000), random.nextInt(5000),
+                    random.nextInt(10), "en", false));
+        }
+        largeCatalog.addAll(movies);
+        MovieQuery query = new MovieQuery.Builder()
+                .sortBy(VOTE_AVERAGE, true)
+                .sortBy(VOTE_COUNT, false)
+                .build();
+
+        List<Movie> sorted = largeCatalog.query(query, movies.size());
+        assertEquals(movies.size(), sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            Movie previous = sorted.get(i - 1);
+            Movie movie = sorted.get(i);
+            assertTrue(previous.getUserRating() > movie.getUserRating()
+                    || (previous.getUserRating() == movie.getUserRating()
+                    && previous.getVoteCount() <= movie.getVoteCount()));
+        }
+    }
+
+    private static Movie movie(int id, String releaseDate, double popularity, int voteCount,
+                               double voteAverage, String language, boolean adult,
+                               int... genreIds) {
+        return new Movie(id, "Title", "/poster.jpg", "Overview", voteAverage, releaseDate,
+                voteCount, popularity, language, adult, genreIds);
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+}
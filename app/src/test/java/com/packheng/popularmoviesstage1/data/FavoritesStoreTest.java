@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.directAppExecutors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FavoritesStoreTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final byte[] POSTER_BYTES = {(byte) 0xff, (byte) 0xd8, 1, 2, 3};
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        dir = temporaryFolder.newFolder();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void add_savesTheMovieAndPinsItsPoster() throws Exception {
+        server.enqueue(new MockResponse().setBody(new Buffer().write(POSTER_BYTES)));
+        FavoritesStore store = newStore();
+
+        // Told once the movie is saved, then once its poster is pinned.
+        CountDownLatch changes = listenToChanges(store, 2);
+        store.add(movie(78, "Blade Runner"), server.url("/w342/poster.jpg").toString());
+        assertTrue(changes.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        String pinnedPosterUrl = store.getPinnedPosterUrl(78);
+        assertTrue(pinnedPosterUrl.startsWith("file://"));
+        File posterFile = new File(pinnedPosterUrl.substring("file://".length()));
+        assertEquals(POSTER_BYTES.length, posterFile.length());
+
+        // Read back with all their fields, without any request.
+        FavoritesStore restartedStore = newStore();
+        List<Movie> favorites = load(restartedStore);
+        assertEquals(1, favorites.size());
+        assertEquals(movie(78, "Blade Runner"), favorites.get(0));
+        assertTrue(restartedStore.isFavorite(78));
+        assertEquals(pinnedPosterUrl, restartedStore.getPinnedPosterUrl(78));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void remove_deletesTheMovieAndItsPoster() throws Exception {
+        server.enqueue(new MockResponse().setBody(new Buffer().write(POSTER_BYTES)));
+        FavoritesStore store = newStore();
+        CountDownLatch changes = listenToChanges(store, 2);
+        store.add(movie(78, "Blade Runner"), server.url("/w342/poster.jpg").toString());
+        assertTrue(changes.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        File posterFile = new File(store.getPinnedPosterUrl(78).substring("file://".length()));
+
+        store.add(movie(550, "Fight Club"), "");
+        store.remove(78);
+
+        List<Movie> favorites = load(newStore());
+        assertEquals(1, favorites.size());
+        assertEquals(550, favorites.get(0).getId());
+        assertNull(store.getFavorite(78));
+        assertFalse(store.isFavorite(78));
+        assertEquals("", store.getPinnedPosterUrl(78));
+        assertFalse(posterFile.exists());
+    }
+
+    private FavoritesStore newStore() {
+        return new FavoritesStore(dir, new OkHttpClient(), directAppExecutors());
+    }
+
+    private static CountDownLatch listenToChanges(FavoritesStore store, int count) {
+        final CountDownLatch latch = new CountDownLatch(count);
+        store.addOnFavoritesChangedListener(new FavoritesStore.OnFavoritesChangedListener() {
+            @Override
+            public void onFavoritesChanged() {
+                latch.countDown();
+            }
+        });
+        return latch;
+    }
+
+    private static List<Movie> load(FavoritesStore store) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<?>[] result = new List<?>[1];
+        store.load(new FavoritesStore.OnFavoritesLoadedListener() {
+            @Override
+            public void onFavoritesLoaded(List<Movie> favorites) {
+                result[0] = favorites;
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        @SuppressWarnings("unchecked")
+        List<Movie> favorites = (List<Movie>) result[0];
+        return favorites;
+    }
+
+    private static Movie movie(int id, String title) {
+        return new Movie(id, title, "/poster.jpg", "Overview", 7.9, "1982-06-25", 9000, 30.5,
+                "en", false, new int[] {878, 18});
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.direct;
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.directAppExecutors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GenreStoreTest {
+
+    private static final String GENRES_JSON = "{\"genres\":[{\"id\":28,\"name\":\"Action\"},"
+            + "{\"id\":878,\"name\":\"Science Fiction\"},{\"id\":35,\"name\":\"Comedy\"}]}";
+    private static final long TIMEOUT_SECONDS = 5;
+    // Expired as soon as saved.
+    private static final long EXPIRED_TTL_MILLIS = -1;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TMDBEndpointInterface apiService;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(
+                        GsonConverterFactory.create(MoviesPageTypeAdapter.createGson()))
+                .callbackExecutor(direct())
+                .build()
+                .create(TMDBEndpointInterface.class);
+        file = new File(temporaryFolder.newFolder(), "genres.json");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void load_fetchesTheGenresOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody(GENRES_JSON));
+        GenreStore store = newStore(GenreStore.DEFAULT_TTL_MILLIS);
+
+        GenreTable genres = load(store);
+        assertEquals("Science Fiction", genres.nameOf(878));
+        assertNull(genres.nameOf(18));
+        assertEquals(Arrays.asList("Science Fiction", "Action"),
+                genres.namesOf(new int[] {878, 18, 28}));
+        assertEquals("Comedy", genres.getGenres().get(1).getName());
+
+        load(store);
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/genre/movie/list?api_key=key", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void load_readsTheGenresSavedByAnotherInstance() throws Exception {
+        server.enqueue(new MockResponse().setBody(GENRES_JSON));
+        load(newStore(GenreStore.DEFAULT_TTL_MILLIS));
+
+        assertEquals("Action", load(newStore(GenreStore.DEFAULT_TTL_MILLIS)).nameOf(28));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void load_servesStaleGenresWhenRequestFails() throws Exception {
+        server.enqueue(new MockResponse().setBody(GENRES_JSON));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        load(newStore(GenreStore.DEFAULT_TTL_MILLIS));
+
+        assertEquals("Action", load(newStore(EXPIRED_TTL_MILLIS)).nameOf(28));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private GenreStore newStore(long ttlMillis) {
+        return new GenreStore(file, apiService, "key", ttlMillis, directAppExecutors());
+    }
+
+    private static GenreTable load(GenreStore store) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final GenreTable[] result = new GenreTable[1];
+        store.load(new GenreStore.OnGenresLoadedListener() {
+            @Override
+            public void onGenresLoaded(@Nullable GenreTable genres) {
+                result[0] = genres;
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return result[0];
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+import com.packheng.popularmoviesstage1.images.DominantColor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class GridSnapshotTest {
+
+    private static final String KEY = "Most Popular Movies";
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeThenRead_keepsTheGridFields() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), GridSnapshot.FILE_NAME);
+        GridSnapshot.write(file, new GridSnapshot(KEY, Arrays.asList(
+                movie(335983, "Venom", "/2uNW4WbgBXL25BAbXGLnLqX71Sw.jpg", 6.6, "2018-10-03",
+                        0xff204060),
+                movie(19, "Am\u00e9lie", "", 7.9, "", DominantColor.NO_COLOR))));
+
+        GridSnapshot snapshot = GridSnapshot.read(file, KEY);
+        assertEquals(KEY, snapshot.getKey());
+        List<Movie> movies = snapshot.getMovies();
+        assertEquals(2, movies.size());
+
+        Movie venom = movies.get(0);
+        assertEquals(335983, venom.getId());
+        assertEquals("Venom", venom.getTitle());
+        assertEquals("/2uNW4WbgBXL25BAbXGLnLqX71Sw.jpg", venom.getPosterPath());
+        assertEquals(6.6, venom.getUserRating(), 1e-6);
+        assertEquals("2018-10-03", venom.getReleaseDate());
+        assertEquals(17807, venom.getReleaseEpochDay());
+        assertEquals(0xff204060, venom.getPosterColor());
+
+        Movie amelie = movies.get(1);
+        assertEquals("Am\u00e9lie", amelie.getTitle());
+        assertEquals("", amelie.getPosterPath());
+        assertEquals("", amelie.getReleaseDate());
+        assertEquals(DominantColor.NO_COLOR, amelie.getPosterColor());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void write_keepsTheFirstMovies() throws Exception {
+        List<Movie> movies = new ArrayList<>();
+        for (int id = 0; id < GridSnapshot.MAX_MOVIES + 10; id++) {
+            movies.add(movie(id, "Title", "/poster.jpg", 5.0, "2018-01-01", 0));
+        }
+
+        GridSnapshot snapshot = GridSnapshot.decode(
+                GridSnapshot.encode(new GridSnapshot(KEY, movies)));
+        assertEquals(GridSnapshot.MAX_MOVIES, snapshot.getMovies().size());
+        assertEquals(GridSnapshot.MAX_MOVIES - 1,
+                snapshot.getMovies().get(GridSnapshot.MAX_MOVIES - 1).getId());
+    }
+
+    @Test
+    public void read_ignoresCorruptSnapshots() throws Exception {
+        byte[] bytes = GridSnapshot.encode(new GridSnapshot(KEY, Arrays.asList(
+                movie(78, "Blade Runner", "/poster.jpg", 7.9, "1982-06-25", 0))));
+
+        // Every single flipped byte is detected.
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[i] ^= 0x20;
+            assertNull("Byte " + i, readBytes(corrupt));
+        }
+        // And every truncation.
+        for (int length = 0; length < bytes.length; length++) {
+            assertNull("Length " + length, readBytes(Arrays.copyOf(bytes, length)));
+        }
+    }
+
+    @Test
+    public void read_ignoresOtherVersionsAndFiles() throws Exception {
+        assertNull(readBytes(withCrc(GridSnapshot.MAGIC, GridSnapshot.VERSION + 1)));
+        assertNull(readBytes(withCrc(0x7b226964, GridSnapshot.VERSION)));
+        assertNull(GridSnapshot.read(new File(temporaryFolder.getRoot(), "missing.bin"), KEY));
+    }
+
+    @Test
+    public void read_ignoresSnapshotsOfAnotherGrid() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), GridSnapshot.FILE_NAME);
+        GridSnapshot.write(file, new GridSnapshot(KEY, Arrays.asList(
+                movie(78, "Blade Runner", "/poster.jpg", 7.9, "1982-06-25", 0))));
+
+        assertNull(GridSnapshot.read(file, "Top Rated Movies"));
+        assertNull(GridSnapshot.read(file, ""));
+        // Still there for its own grid.
+        assertEquals(KEY, GridSnapshot.read(file, KEY).getKey());
+    }
+
+    private GridSnapshot readBytes(byte[] bytes) throws IOException {
+        File file = temporaryFolder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        GridSnapshot snapshot = GridSnapshot.read(file, KEY);
+        if (snapshot == null) {
+            // Deleted, so that it isn't read again.
+            assertFalse(file.exists() && file.length() > 0);
+        }
+        return snapshot;
+    }
+
+    // A valid snapshot header with no movies, but the given magic number and version.
+    private static byte[] withCrc(int magic, int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeUTF(KEY);
+        out.writeInt(0);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static Movie movie(int id, String title, String posterPath, double userRating,
+                               String releaseDate, int posterColor) {
+        return new Movie(id, title, posterPath, "Overview", userRating, releaseDate)
+                .withDisplayFields("", posterColor, 0, "", "");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.packheng.popularmoviesstage1.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class IoUtilsTest {
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeAtomically_replacesTheFile() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "file.txt");
+        IoUtils.writeAtomically(file, content("first"));
+        IoUtils.writeAtomically(file, content("second"), true);
+
+        assertEquals("second", read(file));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void writeAtomically_keepsThePreviousFileOnFailure() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "file.txt");
+        IoUtils.writeAtomically(file, content("first"));
+
+        try {
+            IoUtils.writeAtomically(file, new IoUtils.ContentWriter() {
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write("trunc".getBytes("UTF-8"));
+                    throw new IOException("Disk full");
+                }
+            });
+            fail();
+        } catch (IOException expected) {
+            // The failure is reported to the caller.
+        }
+
+        assertEquals("first", read(file));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    private static IoUtils.ContentWriter content(final String text) {
+        return new IoUtils.ContentWriter() {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(text.getBytes("UTF-8"));
+            }
+        };
+    }
+
+    private static String read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[64];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, count);
+            }
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import android.support.annotation.Nullable;
+
+import com.packheng.popularmoviesstage1.TMDB.MovieDetails;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.direct;
+import static com.packheng.popularmoviesstage1.utils.TestExecutors.directAppExecutors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class MovieDetailsStoreTest {
+
+    private static final int MOVIE_ID = 335983;
+    private static final String DETAILS_JSON = "{\"id\":335983,\"original_title\":\"Venom\","
+            + "\"vote_average\":6.6,\"poster_path\":\"/2uNW4WbgBXL25BAbXGLnLqX71Sw.jpg\","
+            + "\"overview\":\"Overview\",\"release_date\":\"2018-10-03\",\"runtime\":112,"
+            + "\"genres\":[{\"id\":878,\"name\":\"Science Fiction\"}],"
+            + "\"videos\":{\"results\":[{\"key\":\"u9Mv98Gr5pY\",\"name\":\"Trailer\","
+            + "\"site\":\"YouTube\",\"type\":\"Trailer\"}]},"
+            + "\"reviews\":{\"results\":[{\"author\":\"Author\",\"content\":\"Review\"}]}}";
+    private static final long TIMEOUT_SECONDS = 5;
+    // Expired as soon as saved.
+    private static final long EXPIRED_TTL_MILLIS = -1;
+
+    @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TMDBEndpointInterface apiService;
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(
+                        GsonConverterFactory.create(MoviesPageTypeAdapter.createGson()))
+                .callbackExecutor(direct())
+                .build()
+                .create(TMDBEndpointInterface.class);
+        cacheDir = temporaryFolder.newFolder();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void load_fetchesDetailsWithVideosAndReviewsOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody(DETAILS_JSON));
+        MovieDetailsStore store = newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS);
+
+        MovieDetails details = load(store);
+        assertEquals(MOVIE_ID, details.getMovie().getId());
+        assertEquals(112, details.getRuntimeMinutes());
+        assertEquals("Science Fiction", details.getGenres().get(0).getName());
+        assertEquals("https://www.youtube.com/watch?v=u9Mv98Gr5pY",
+                details.getVideos().get(0).getWatchUrl());
+        assertEquals("Author", details.getReviews().get(0).getAuthor());
+
+        assertNotNull(load(store));
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/movie/335983?api_key=key&append_to_response=videos%2Creviews",
+                server.takeRequest().getPath());
+    }
+
+    @Test
+    public void prefetchThenLoad_shareOneRequest() throws Exception {
+        server.enqueue(new MockResponse().setBody(DETAILS_JSON)
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+        MovieDetailsStore store = newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS);
+
+        store.prefetch(MOVIE_ID);
+        assertNotNull(load(store));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void load_readsDetailsSavedByAnotherInstance() throws Exception {
+        server.enqueue(new MockResponse().setBody(DETAILS_JSON));
+        load(newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS));
+
+        MovieDetails details = load(newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS));
+        assertEquals(MOVIE_ID, details.getMovie().getId());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void load_servesStaleDetailsWhenRequestFails() throws Exception {
+        server.enqueue(new MockResponse().setBody(DETAILS_JSON));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        load(newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS));
+
+        MovieDetails details = load(newStore(EXPIRED_TTL_MILLIS));
+        assertEquals(MOVIE_ID, details.getMovie().getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void load_prunesTheOldestFiles() throws Exception {
+        server.enqueue(new MockResponse().setBody(DETAILS_JSON));
+        long now = System.currentTimeMillis();
+        File oldest = cachedFile(1, now - TimeUnit.DAYS.toMillis(3));
+        File older = cachedFile(2, now - TimeUnit.DAYS.toMillis(2));
+        File old = cachedFile(3, now - TimeUnit.DAYS.toMillis(1));
+
+        load(newStore(MovieDetailsStore.DEFAULT_TTL_MILLIS, 2));
+        assertFalse(oldest.exists());
+        assertFalse(older.exists());
+        assertTrue(old.exists());
+        assertTrue(new File(cacheDir, MOVIE_ID + ".json").exists());
+    }
+
+    private MovieDetailsStore newStore(long ttlMillis) {
+        return newStore(ttlMillis, MovieDetailsStore.DEFAULT_MAX_FILES);
+    }
+
+    private MovieDetailsStore newStore(long ttlMillis, int maxFiles) {
+        return new MovieDetailsStore(cacheDir, apiService, "key", ttlMillis, maxFiles,
+                directAppExecutors());
+    }
+
+    private File cachedFile(int movieId, long lastModified) throws IOException {
+        File file = new File(cacheDir, movieId + ".json");
+        assertTrue(file.createNewFile());
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static MovieDetails load(MovieDetailsStore store) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final MovieDetails[] result = new MovieDetails[1];
+        store.load(MOVIE_ID, new MovieDetailsStore.OnDetailsLoadedListener() {
+            @Override
+            public void onDetailsLoaded(@Nullable MovieDetails details) {
+                result[0] = details;
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return result[0];
+    }
+}
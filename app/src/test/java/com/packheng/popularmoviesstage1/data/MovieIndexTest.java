@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MovieIndexTest {
+
+    @Test
+    public void get_returnsTheMovieWithTheId() {
+        MovieIndex index = new MovieIndex();
+        Movie fightClub = movie(550);
+        Movie bladeRunner = movie(78);
+        index.put(fightClub);
+        index.put(bladeRunner);
+
+        assertSame(fightClub, index.get(550));
+        assertSame(bladeRunner, index.get(78));
+        assertNull(index.get(551));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void put_replacesTheMovieWithTheSameId() {
+        MovieIndex index = new MovieIndex();
+        Movie movie = movie(550);
+        index.put(movie(550));
+        index.put(movie);
+
+        assertSame(movie, index.get(550));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void put_growsWithManyMovies() {
+        MovieIndex index = new MovieIndex(1);
+        for (int id = 0; id < 10000; id += 3) {
+            index.put(movie(id));
+        }
+
+        assertEquals(3334, index.size());
+        for (int id = 0; id < 10000; id++) {
+            Movie movie = index.get(id);
+            if (id % 3 == 0) {
+                assertEquals(id, movie.getId());
+            } else {
+                assertNull(movie);
+            }
+        }
+    }
+
+    @Test
+    public void clear_removesAllTheMovies() {
+        MovieIndex index = new MovieIndex();
+        index.put(movie(550));
+        index.clear();
+
+        assertNull(index.get(550));
+        assertEquals(0, index.size());
+    }
+
+    private static Movie movie(int id) {
+        return new Movie(id, "Title " + id, "/poster.jpg", "", 7.0, "2018-10-03");
+    }
+}
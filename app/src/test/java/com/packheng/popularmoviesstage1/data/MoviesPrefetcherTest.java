@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MoviesPrefetcherTest {
+    private static final String POPULAR = "movie/popular";
+    private static final String TOP_RATED = "movie/top_rated";
+
+    private RecordingFetcher fetcher;
+    private MoviesPrefetcher prefetcher;
+
+    @Before
+    public void setUp() {
+        fetcher = new RecordingFetcher();
+        prefetcher = new MoviesPrefetcher(fetcher, 2);
+    }
+
+    @Test
+    public void warmUp_fetchesNextPagesThenOtherList() {
+        prefetcher.warmUp(POPULAR, 100, 3, TOP_RATED);
+        fetcher.completeAll();
+
+        assertEquals(Arrays.asList(POPULAR + "#2", POPULAR + "#3", POPULAR + "#4",
+                TOP_RATED + "#1"), fetcher.requested);
+    }
+
+    @Test
+    public void warmUp_skipsPagesBeyondTheLastOne() {
+        prefetcher.warmUp(POPULAR, 2, 3, TOP_RATED);
+        fetcher.completeAll();
+
+        assertEquals(Arrays.asList(POPULAR + "#2", TOP_RATED + "#1"), fetcher.requested);
+    }
+
+    @Test
+    public void warmUp_runsAtMostTheMaximumNumberOfRequests() {
+        prefetcher.warmUp(POPULAR, 100, 3, TOP_RATED);
+        assertEquals(2, fetcher.running.size());
+        assertEquals(2, prefetcher.getPendingCount());
+
+        fetcher.completeFirst();
+        assertEquals(2, fetcher.running.size());
+        assertEquals(1, prefetcher.getPendingCount());
+
+        fetcher.completeAll();
+        assertEquals(4, fetcher.requested.size());
+        assertEquals(0, prefetcher.getPendingCount());
+    }
+
+    @Test
+    public void cancel_dropsPendingPages() {
+        prefetcher.warmUp(POPULAR, 100, 3, TOP_RATED);
+        prefetcher.cancel();
+        fetcher.completeAll();
+
+        assertEquals(2, fetcher.requested.size());
+        assertEquals(0, prefetcher.getPendingCount());
+    }
+
+    @Test
+    public void getWarmUpEndpoint_isTheListOfTheCurrentWarmUp() {
+        assertNull(prefetcher.getWarmUpEndpoint());
+        prefetcher.warmUp(POPULAR, 100, 3, TOP_RATED);
+        assertEquals(POPULAR, prefetcher.getWarmUpEndpoint());
+
+        prefetcher.cancel();
+        assertNull(prefetcher.getWarmUpEndpoint());
+    }
+
+    @Test
+    public void warmUp_afterCancelCountsTheRequestsStillRunning() {
+        prefetcher.warmUp(POPULAR, 100, 3, TOP_RATED);
+        prefetcher.cancel();
+        prefetcher.warmUp(TOP_RATED, 100, 3, POPULAR);
+
+        // The requests of the cancelled warm-up hold both slots.
+        assertEquals(2, fetcher.running.size());
+        assertEquals(4, prefetcher.getPendingCount());
+
+        fetcher.completeFirst();
+        assertEquals(2, fetcher.running.size());
+        assertEquals(3, prefetcher.getPendingCount());
+
+        fetcher.completeAll();
+        assertEquals(Arrays.asList(POPULAR + "#2", POPULAR + "#3", TOP_RATED + "#2",
+                TOP_RATED + "#3", TOP_RATED + "#4", POPULAR + "#1"), fetcher.requested);
+    }
+
+    private static class RecordingFetcher implements MoviesPrefetcher.PageFetcher {
+        final List<String> requested = new ArrayList<>();
+        final List<Runnable> running = new ArrayList<>();
+
+        @Override
+        public void prefetch(String endpoint, int page, Runnable onDone) {
+            requested.add(endpoint + "#" + page);
+            running.add(onDone);
+        }
+
+        void completeFirst() {
+            running.remove(0).run();
+        }
+
+        void completeAll() {
+            while (!running.isEmpty()) {
+                completeFirst();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import org.junit.Test;
+
+import static com.packheng.popularmoviesstage1.images.DominantColor.NO_COLOR;
+import static com.packheng.popularmoviesstage1.images.DominantColor.fromPixels;
+import static org.junit.Assert.assertEquals;
+
+public class DominantColorTest {
+
+    @Test
+    public void fromPixels_averagesTheLargestGroupOfSimilarColors() {
+        int[] pixels = {
+                0xff100000, 0xff120203, 0xff0e0000, // Three dark reds.
+                0xff00ff00, 0xff00fe00               // Two greens.
+        };
+
+        assertEquals(0xff100001, fromPixels(pixels));
+    }
+
+    @Test
+    public void fromPixels_ignoresTransparentPixels() {
+        int[] pixels = {0x00ffffff, 0x10ffffff, 0x20ffffff, 0xff204060};
+
+        assertEquals(0xff204060, fromPixels(pixels));
+    }
+
+    @Test
+    public void fromPixels_noOpaquePixels() {
+        assertEquals(NO_COLOR, fromPixels(new int[0]));
+        assertEquals(NO_COLOR, fromPixels(new int[] {0x00000000, 0x7f123456}));
+    }
+}
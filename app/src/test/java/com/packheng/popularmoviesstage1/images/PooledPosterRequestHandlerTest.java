@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PooledPosterRequestHandlerTest {
+
+    @Test
+    public void calculateInSampleSize_keepsEveryPixelOfACoveringPoster() {
+        assertEquals(1, PooledPosterRequestHandler.calculateInSampleSize(185, 278, 185, 278));
+        assertEquals(1, PooledPosterRequestHandler.calculateInSampleSize(342, 513, 180, 270));
+    }
+
+    @Test
+    public void calculateInSampleSize_skipsPixelsWhileStillCoveringTheCell() {
+        assertEquals(2, PooledPosterRequestHandler.calculateInSampleSize(780, 1170, 300, 450));
+        assertEquals(4, PooledPosterRequestHandler.calculateInSampleSize(780, 1170, 185, 278));
+    }
+
+    @Test
+    public void calculateInSampleSize_coversBothDimensions() {
+        // Half the width would still cover the cell, not half the height.
+        assertEquals(1, PooledPosterRequestHandler.calculateInSampleSize(500, 750, 240, 400));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.images;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReuseTrackerTest {
+
+    private ReuseTracker<Object> tracker;
+    private Object bitmap;
+
+    @Before
+    public void setUp() {
+        tracker = new ReuseTracker<>();
+        bitmap = new Object();
+        tracker.register(bitmap);
+    }
+
+    @Test
+    public void release_isNotReusableWhileStillShown() {
+        tracker.acquire(bitmap);
+        tracker.acquire(bitmap);
+        assertFalse(tracker.onRemovedFromCache(bitmap));
+
+        assertFalse(tracker.release(bitmap));
+        assertTrue(tracker.release(bitmap));
+    }
+
+    @Test
+    public void onRemovedFromCache_isReusableOnceNoLongerShown() {
+        tracker.acquire(bitmap);
+        assertFalse(tracker.release(bitmap));
+
+        assertTrue(tracker.onRemovedFromCache(bitmap));
+    }
+
+    @Test
+    public void release_ignoresDoubleReleases() {
+        tracker.acquire(bitmap);
+        assertFalse(tracker.release(bitmap));
+        assertFalse(tracker.release(bitmap));
+
+        // The count didn't go below zero: one acquire holds the bitmap again.
+        tracker.acquire(bitmap);
+        assertFalse(tracker.onRemovedFromCache(bitmap));
+        assertTrue(tracker.release(bitmap));
+    }
+
+    @Test
+    public void release_ignoresUnknownItems() {
+        Object unknown = new Object();
+        tracker.acquire(unknown);
+
+        assertFalse(tracker.release(unknown));
+        assertFalse(tracker.onRemovedFromCache(unknown));
+    }
+
+    @Test
+    public void onRemovedFromCache_neverShownIsNotReusable() {
+        assertFalse(tracker.onRemovedFromCache(bitmap));
+
+        // Forgotten: it may still be shown, but won't return to the pool.
+        tracker.acquire(bitmap);
+        assertFalse(tracker.release(bitmap));
+    }
+
+    @Test
+    public void unregister_forgetsTheItem() {
+        tracker.acquire(bitmap);
+        assertFalse(tracker.onRemovedFromCache(bitmap));
+        tracker.unregister(bitmap);
+
+        assertFalse(tracker.release(bitmap));
+    }
+}
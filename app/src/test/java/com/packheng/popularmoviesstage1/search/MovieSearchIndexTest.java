@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.search;
+
+import com.packheng.popularmoviesstage1.TMDB.Movie;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MovieSearchIndexTest {
+
+    private MovieSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new MovieSearchIndex();
+        index.addAll(Arrays.asList(
+                movie(1, "Blade Runner", "A blade runner must pursue replicants."),
+                movie(2, "Blade Runner 2049", "A young blade runner unearths a secret."),
+                movie(3, "Runaway Train", "Two escaped convicts on a runaway train."),
+                movie(4, "Am\u00e9lie", "A shy waitress decides to change lives.")));
+    }
+
+    @Test
+    public void search_matchesPrefixesOfEveryWord() {
+        assertEquals(Arrays.asList(1, 2), ids(index.search("blad run", 10)));
+        assertEquals(Collections.singletonList(2), ids(index.search("run 204", 10)));
+    }
+
+    @Test
+    public void search_ranksTitleMatchesFirst() {
+        index.addAll(Collections.singletonList(
+                movie(5, "Replicant Hunt", "Another blade runner story.")));
+
+        assertEquals(Arrays.asList(1, 2, 5), ids(index.search("blade", 10)));
+        assertEquals(Arrays.asList(5, 1), ids(index.search("replicant", 10)));
+    }
+
+    @Test
+    public void search_ignoresCaseAndAccents() {
+        assertEquals(Collections.singletonList(4), ids(index.search("AMEL", 10)));
+        assertEquals(Collections.singletonList(4), ids(index.search("am\u00e9lie", 10)));
+    }
+
+    @Test
+    public void search_matchesBothTitles() {
+        index.addAll(Collections.singletonList(new Movie(5, "Sen to Chihiro no Kamikakushi",
+                "/poster.jpg", "A girl in the spirit world.", 8.5, "2001-07-20", 0, 0, "ja",
+                false, new int[0], "Spirited Away")));
+
+        assertEquals(Collections.singletonList(5), ids(index.search("chihiro", 10)));
+        assertEquals(Collections.singletonList(5), ids(index.search("spirited aw", 10)));
+    }
+
+    @Test
+    public void search_returnsAtMostTheLimit() {
+        assertEquals(Collections.singletonList(1), ids(index.search("r", 1)));
+        assertTrue(index.search("  ", 10).isEmpty());
+        assertTrue(index.search("zzz", 10).isEmpty());
+    }
+
+    @Test
+    public void addAll_replacesMoviesWhoseTextChanged() {
+        index.addAll(Collections.singletonList(movie(3, "Runaway Train", "Snowbound.")));
+
+        assertEquals(4, index.size());
+        assertTrue(index.search("convicts", 10).isEmpty());
+        assertEquals(Collections.singletonList(3), ids(index.search("snow", 10)));
+    }
+
+    private static Movie movie(int id, String title, String overview) {
+        return new Movie(id, title, "/poster.jpg", overview, 7.5, "2017-10-04");
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+}
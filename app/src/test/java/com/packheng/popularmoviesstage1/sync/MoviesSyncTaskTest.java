@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.sync;
+
+import com.packheng.popularmoviesstage1.TMDB.MoviesPage;
+import com.packheng.popularmoviesstage1.TMDB.MoviesPageTypeAdapter;
+import com.packheng.popularmoviesstage1.TMDB.MoviesRequestCoordinator;
+import com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface;
+import com.packheng.popularmoviesstage1.images.PosterSizeResolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface.MOST_POPULAR_ENDPOINT;
+import static com.packheng.popularmoviesstage1.TMDB.TMDBEndpointInterface.TOP_RATED_ENDPOINT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MoviesSyncTaskTest {
+    private static final String POSTER_BODY = "poster";
+
+    private MockWebServer server;
+    private final List<String> storedPages = new ArrayList<>();
+    private final List<String> posterPaths = new ArrayList<>();
+    private int totalPages = 3;
+    private boolean popularFails;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if (path.startsWith("/t/p/")) {
+                    synchronized (posterPaths) {
+                        posterPaths.add(path);
+                    }
+                    return new MockResponse().setBody(POSTER_BODY);
+                }
+                if (popularFails && path.startsWith("/movie/popular")) {
+                    return new MockResponse().setResponseCode(500);
+                }
+                String page = request.getRequestUrl().queryParameter("page");
+                return new MockResponse().setBody(pageJson(path.substring(1, path.indexOf('?')),
+                        Integer.parseInt(page)));
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void run_storesPagesAndDownloadsFirstScreenPosters() {
+        boolean refreshed = createTask(2, 1, Long.MAX_VALUE)
+                .run(MOST_POPULAR_ENDPOINT, TOP_RATED_ENDPOINT);
+
+        assertTrue(refreshed);
+        assertEquals(Arrays.asList(MOST_POPULAR_ENDPOINT + "#1", MOST_POPULAR_ENDPOINT + "#2",
+                TOP_RATED_ENDPOINT + "#1", TOP_RATED_ENDPOINT + "#2"), storedPages);
+        // One poster of the first page of each list.
+        assertEquals(Arrays.asList("/t/p/w185/movie_popular_1_a.jpg",
+                "/t/p/w185/movie_top_rated_1_a.jpg"), posterPaths);
+    }
+
+    @Test
+    public void run_stopsAtTheLastPage() {
+        totalPages = 1;
+
+        assertTrue(createTask(3, 0, Long.MAX_VALUE).run(MOST_POPULAR_ENDPOINT));
+
+        assertEquals(Arrays.asList(MOST_POPULAR_ENDPOINT + "#1"), storedPages);
+    }
+
+    @Test
+    public void run_failedListIsReported() {
+        popularFails = true;
+
+        boolean refreshed = createTask(1, 0, Long.MAX_VALUE)
+                .run(MOST_POPULAR_ENDPOINT, TOP_RATED_ENDPOINT);
+
+        assertFalse(refreshed);
+        assertEquals(Arrays.asList(TOP_RATED_ENDPOINT + "#1"), storedPages);
+    }
+
+    @Test
+    public void run_stopsWhenTheDataBudgetIsUsedUp() {
+        boolean refreshed = createTask(2, 2, 1).run(MOST_POPULAR_ENDPOINT, TOP_RATED_ENDPOINT);
+
+        // Not retried: the next sync has a new budget.
+        assertTrue(refreshed);
+        assertEquals(Arrays.asList(MOST_POPULAR_ENDPOINT + "#1"), storedPages);
+        assertTrue(posterPaths.isEmpty());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private MoviesSyncTask createTask(int pagesPerList, int postersPerList, long budgetBytes) {
+        DataBudget dataBudget = new DataBudget(budgetBytes);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new RedirectToServerInterceptor(server.url("/")))
+                .addNetworkInterceptor(dataBudget)
+                .build();
+        TMDBEndpointInterface apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(client)
+                .addConverterFactory(
+                        GsonConverterFactory.create(MoviesPageTypeAdapter.createGson()))
+                .build()
+                .create(TMDBEndpointInterface.class);
+
+        return new MoviesSyncTask(apiService, "key", pagesPerList, client,
+                new PosterSizeResolver(185), postersPerList, dataBudget,
+                new MoviesRequestCoordinator.OnPageFetchedListener() {
+                    @Override
+                    public void onPageFetched(String endpoint, int page, MoviesPage moviesPage) {
+                        storedPages.add(endpoint + "#" + page);
+                    }
+                });
+    }
+
+    private String pageJson(String endpoint, int page) {
+        String posterPrefix = "/" + endpoint.replace('/', '_') + "_" + page + "_";
+        return "{\"page\":" + page + ",\"total_results\":40,\"total_pages\":" + totalPages
+                + ",\"results\":["
+                + "{\"id\":" + page + "1,\"original_title\":\"A\",\"vote_average\":6.6,"
+                + "\"poster_path\":\"" + posterPrefix + "a.jpg\",\"overview\":\"\","
+                + "\"release_date\":\"2018-10-03\"},"
+                + "{\"id\":" + page + "2,\"original_title\":\"B\",\"vote_average\":7.1,"
+                + "\"poster_path\":\"" + posterPrefix + "b.jpg\",\"overview\":\"\","
+                + "\"release_date\":\"2018-10-18\"}]}";
+    }
+
+    /**
+     * Sends the requests for the TMDB poster CDN to the mock server.
+     */
+    private static class RedirectToServerInterceptor implements Interceptor {
+        private final HttpUrl serverUrl;
+
+        RedirectToServerInterceptor(HttpUrl serverUrl) {
+            this.serverUrl = serverUrl;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            HttpUrl url = request.url().newBuilder()
+                    .scheme(serverUrl.scheme())
+                    .host(serverUrl.host())
+                    .port(serverUrl.port())
+                    .build();
+            return chain.proceed(request.newBuilder().url(url).build());
+        }
+    }
+}
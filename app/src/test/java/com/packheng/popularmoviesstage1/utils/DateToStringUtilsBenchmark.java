@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Micro benchmark comparing {@link DateToStringUtils} with the previous implementation, which
+ * created two {@link SimpleDateFormat} per date. It isn't a test: run its main method from the
+ * IDE. Results on a desktop JVM only give an order of magnitude of the gain on a device.
+ */
+public class DateToStringUtilsBenchmark {
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int DATES_PER_ROUND = 100000;
+
+    public static void main(String[] args) {
+        String[] dates = new String[1000];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = String.format(Locale.ENGLISH, "%04d-%02d-%02d",
+                    1950 + i % 70, 1 + i % 12, 1 + i % 28);
+        }
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            runLegacy(dates);
+            runCurrent(dates);
+        }
+
+        long legacyNanos = 0;
+        long currentNanos = 0;
+        int checksum = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += runLegacy(dates);
+            legacyNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            checksum += runCurrent(dates);
+            currentNanos += System.nanoTime() - start;
+        }
+
+        int measuredDates = MEASURED_ROUNDS * DATES_PER_ROUND;
+        System.out.printf(Locale.ENGLISH, "SimpleDateFormat: %.1f ns/date%n",
+                (double) legacyNanos / measuredDates);
+        System.out.printf(Locale.ENGLISH, "DateToStringUtils: %.1f ns/date%n",
+                (double) currentNanos / measuredDates);
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    private static int runLegacy(String[] dates) {
+        int length = 0;
+        for (int i = 0; i < DATES_PER_ROUND; i++) {
+            length += legacyFormatDateToString(legacyStringToDate(dates[i % dates.length]))
+                    .length();
+        }
+        return length;
+    }
+
+    private static int runCurrent(String[] dates) {
+        int length = 0;
+        for (int i = 0; i < DATES_PER_ROUND; i++) {
+            length += DateToStringUtils.formatEpochDay(
+                    DateToStringUtils.parseEpochDay(dates[i % dates.length])).length();
+        }
+        return length;
+    }
+
+    // The previous implementation of DateToStringUtils.stringToDate(), without the logging.
+    private static Date legacyStringToDate(String s) {
+        SimpleDateFormat dateFormatUTC = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+        dateFormatUTC.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return dateFormatUTC.parse(s);
+        } catch (ParseException e) {
+            return new Date();
+        }
+    }
+
+    // The previous implementation of DateToStringUtils.formatDateToString().
+    private static String legacyFormatDateToString(Date date) {
+        SimpleDateFormat df = new SimpleDateFormat("MMM dd, yyyy", Locale.ENGLISH);
+        return df.format(date);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.INVALID_DATE;
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.formatEpochDay;
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.formatIsoDate;
+import static com.packheng.popularmoviesstage1.utils.DateToStringUtils.parseEpochDay;
+import static org.junit.Assert.assertEquals;
+
+public class DateToStringUtilsTest {
+
+    @Test
+    public void parseEpochDay_knownDates() {
+        assertEquals(0, parseEpochDay("1970-01-01"));
+        assertEquals(-1, parseEpochDay("1969-12-31"));
+        assertEquals(17807, parseEpochDay("2018-10-03"));
+        assertEquals(11016, parseEpochDay("2000-02-29"));
+    }
+
+    @Test
+    public void parseEpochDay_malformedDates() {
+        assertEquals(INVALID_DATE, parseEpochDay(null));
+        assertEquals(INVALID_DATE, parseEpochDay(""));
+        assertEquals(INVALID_DATE, parseEpochDay("2018-10-3"));
+        assertEquals(INVALID_DATE, parseEpochDay("2018/10/03"));
+        assertEquals(INVALID_DATE, parseEpochDay("2018-13-01"));
+        assertEquals(INVALID_DATE, parseEpochDay("2018-00-10"));
+        assertEquals(INVALID_DATE, parseEpochDay("2018-02-29"));
+        assertEquals(INVALID_DATE, parseEpochDay("1900-02-29"));
+        assertEquals(INVALID_DATE, parseEpochDay("20a8-10-03"));
+        assertEquals("", formatEpochDay(INVALID_DATE));
+    }
+
+    @Test
+    public void parseAndFormat_matchSimpleDateFormat() throws Exception {
+        SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat displayFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.ENGLISH);
+        displayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Every day from 1895 to 2100.
+        for (int epochDay = -27394; epochDay < 47482; epochDay++) {
+            Date date = new Date(TimeUnit.DAYS.toMillis(epochDay));
+            String isoDate = isoFormat.format(date);
+
+            assertEquals(isoDate, epochDay, parseEpochDay(isoDate));
+            assertEquals(isoDate, displayFormat.format(date), formatEpochDay(epochDay));
+            assertEquals(isoDate, formatIsoDate(epochDay));
+        }
+    }
+
+    @Test
+    public void formatEpochDay_usesLocaleMonthNames() {
+        SimpleDateFormat displayFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.FRENCH);
+        displayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date date = new Date(TimeUnit.DAYS.toMillis(17807));
+
+        assertEquals(displayFormat.format(date), formatEpochDay(17807, Locale.FRENCH));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.packheng.popularmoviesstage1.utils.DeepLinkUtils.INVALID_MOVIE_ID;
+import static com.packheng.popularmoviesstage1.utils.DeepLinkUtils.parseMovieId;
+import static org.junit.Assert.assertEquals;
+
+public class DeepLinkUtilsTest {
+
+    private static final String WEB_HOST = "www.themoviedb.org";
+
+    @Test
+    public void parseMovieId_idAlone() {
+        assertEquals(550, parseMovieId("550"));
+        assertEquals(0, parseMovieId("0"));
+    }
+
+    @Test
+    public void parseMovieId_idFollowedByTitle() {
+        assertEquals(550, parseMovieId("550-fight-club"));
+        assertEquals(78, parseMovieId("78-blade-runner"));
+    }
+
+    @Test
+    public void parseMovieId_noId() {
+        assertEquals(INVALID_MOVIE_ID, parseMovieId(null));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId(""));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId("fight-club"));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId("550fight"));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId("-550"));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId("12345678901"));
+    }
+
+    @Test
+    public void parseMovieId_webLink() {
+        assertEquals(550, parseMovieId(WEB_HOST, Arrays.asList("movie", "550-fight-club")));
+        assertEquals(550, parseMovieId(WEB_HOST, Arrays.asList("movie", "550")));
+    }
+
+    @Test
+    public void parseMovieId_webLinkToAPageOfTheMovie() {
+        assertEquals(550,
+                parseMovieId(WEB_HOST, Arrays.asList("movie", "550-fight-club", "reviews")));
+    }
+
+    @Test
+    public void parseMovieId_appLink() {
+        assertEquals(550, parseMovieId("movie", Collections.singletonList("550")));
+    }
+
+    @Test
+    public void parseMovieId_linkWithoutId() {
+        assertEquals(INVALID_MOVIE_ID, parseMovieId(WEB_HOST, Collections.singletonList("movie")));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId(WEB_HOST, Arrays.asList("tv", "1399")));
+        assertEquals(INVALID_MOVIE_ID,
+                parseMovieId(WEB_HOST, Arrays.asList("movie", "reviews", "550")));
+        assertEquals(INVALID_MOVIE_ID, parseMovieId("movie", Collections.<String>emptyList()));
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 Pack Heng
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.packheng.popularmoviesstage1.utils;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executors running the tasks right away on the calling thread, so that tests don't wait for
+ * other threads.
+ */
+public final class TestExecutors {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private TestExecutors() {}
+
+    /**
+     * @return an executor running the tasks on the calling thread.
+     */
+    public static Executor direct() {
+        return DIRECT;
+    }
+
+    /**
+     * @return {@link AppExecutors} whose executors all run the tasks on the calling thread.
+     */
+    public static AppExecutors directAppExecutors() {
+        return new AppExecutors(DIRECT, DIRECT, DIRECT, DIRECT);
+    }
+}